@@ -0,0 +1,303 @@
+/*
+------------------------------------------------------------------------
+JavaANPR - Automatic Number Plate Recognition System for Java
+------------------------------------------------------------------------
+
+This file is a part of the JavaANPR, licensed under the terms of the
+Educational Community License
+
+Copyright (c) 2006-2007 Ondrej Martinsky. All rights reserved
+
+This Original Work, including software, source code, documents, or
+other related items, is being provided by the copyright holder(s)
+subject to the terms of the Educational Community License. By
+obtaining, using and/or copying this Original Work, you agree that you
+have read, understand, and will comply with the following terms and
+conditions of the Educational Community License:
+
+Permission to use, copy, modify, merge, publish, distribute, and
+sublicense this Original Work and its documentation, with or without
+modification, for any purpose, and without fee or royalty to the
+copyright holder(s) is hereby granted, provided that you include the
+following on ALL copies of the Original Work or portions thereof,
+including modifications or derivatives, that you make:
+
+# The full text of the Educational Community License in a location
+viewable to users of the redistributed or derivative work.
+
+# Any pre-existing intellectual property disclaimers, notices, or terms
+and conditions.
+
+# Notice of any changes or modifications to the Original Work,
+including the date the changes were made.
+
+# Any modifications of the Original Work must be distributed in such a
+manner as to avoid any confusion with the Original Work of the
+copyright holders.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+The name and trademarks of copyright holder(s) may NOT be used in
+advertising or publicity pertaining to the Original or Derivative Works
+without specific, written prior permission. Title to copyright in the
+Original Work and any associated documentation will at all times remain
+with the copyright holders.
+
+If you want to alter upon this work, you MUST attribute it in
+a) all source files
+b) on every place, where is the copyright of derivated work
+exactly by the following label :
+
+---- label begin ----
+This work is a derivate of the JavaANPR. JavaANPR is a intellectual
+property of Ondrej Martinsky. Please visit http://javaanpr.sourceforge.net
+for more info about JavaANPR.
+----  label end  ----
+
+------------------------------------------------------------------------
+                                         http://javaanpr.sourceforge.net
+------------------------------------------------------------------------
+ */
+
+package net.sf.javaanpr.capture;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+import net.sf.javaanpr.imageanalysis.CarSnapshot;
+
+/**
+ * Splits a stream of JPEG images into frames: a Motion JPEG stream, the body of a {@code multipart/x-mixed-replace}
+ * HTTP response or simply JPEG files written one after another.
+ * <p>
+ * The stream is read frame by frame, only the current frame is held in memory. Anything between the frames (multipart
+ * boundaries and headers) is skipped while searching for the start of the next image. The markers of every image are
+ * followed from SOI to EOI, so the EOI of an embedded thumbnail does not end the frame early. A corrupted or truncated
+ * frame is dropped and the stream is searched for the start of the next image, so a bad frame does not end a live
+ * stream. A frame cut off by the end of the stream is dropped.
+ */
+public class MjpegFrameSource implements FrameSource {
+    private static final int SOI = 0xd8;
+    private static final int EOI = 0xd9;
+    private static final int SOS = 0xda;
+    private static final int TEM = 0x01;
+    private static final int RST0 = 0xd0;
+    private static final int RST7 = 0xd7;
+
+    /* results of reading a marker or an image, besides the marker code */
+    private static final int END = -1; // the end of the stream
+    private static final int CORRUPT = -2; // not a valid image, skip to the next SOI
+    private static final int RESTART = -3; // SOI inside the image, the previous image has been truncated
+    private static final int COMPLETE = -4;
+
+    private final InputStream in;
+    /* the current frame, reused for the next one */
+    private byte[] frame = new byte[64 * 1024];
+    private int length;
+    /* marker found at the end of entropy-coded data, -1 if none */
+    private int pendingMarker;
+    private long droppedFrames = 0;
+
+    /**
+     * @param in the stream, it is buffered if needed
+     */
+    public MjpegFrameSource(InputStream in) {
+        this.in = (in instanceof BufferedInputStream) ? in : new BufferedInputStream(in, 64 * 1024);
+    }
+
+    /**
+     * Reads and decodes the next frame, skipping frames which cannot be decoded.
+     */
+    @Override
+    public CarSnapshot nextFrame() throws IOException {
+        ByteBuffer jpeg;
+        while ((jpeg = this.nextJpeg()) != null) {
+            try {
+                return new CarSnapshot(jpeg);
+            } catch (IOException e) {
+                this.droppedFrames++; // a damaged image, the stream itself is fine
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reads the next image without decoding it. Corrupted and truncated images are skipped.
+     *
+     * @return the image from SOI to EOI, valid until the next call, or null at the end of the stream
+     * @throws IOException if the stream cannot be read
+     */
+    public ByteBuffer nextJpeg() throws IOException {
+        boolean started = this.findStartOfImage();
+        while (started) {
+            int result = this.readImage();
+            if (result == MjpegFrameSource.COMPLETE) {
+                return ByteBuffer.wrap(this.frame, 0, this.length);
+            }
+            if (result == MjpegFrameSource.END) {
+                return null;
+            }
+            this.droppedFrames++;
+            started = (result == MjpegFrameSource.RESTART) || this.findStartOfImage();
+        }
+        return null;
+    }
+
+    /**
+     * @return the number of corrupted, truncated or undecodable images skipped so far, not counting one cut off by the
+     *         end of the stream
+     */
+    public long getDroppedFrames() {
+        return this.droppedFrames;
+    }
+
+    /* reads the image after its SOI into the frame buffer */
+    private int readImage() throws IOException {
+        this.length = 0;
+        this.pendingMarker = -1;
+        this.put(0xff);
+        this.put(MjpegFrameSource.SOI);
+        while (true) {
+            int marker = this.pendingMarker;
+            this.pendingMarker = -1;
+            if (marker < 0) {
+                marker = this.readMarker();
+            }
+            if (marker < 0) {
+                return marker;
+            }
+            if (marker == MjpegFrameSource.SOI) {
+                return MjpegFrameSource.RESTART;
+            }
+            this.put(0xff);
+            this.put(marker);
+            if (marker == MjpegFrameSource.EOI) {
+                return MjpegFrameSource.COMPLETE;
+            }
+            if ((marker == MjpegFrameSource.TEM) || ((marker >= MjpegFrameSource.RST0)
+                && (marker <= MjpegFrameSource.RST7))) {
+                continue; // markers without a segment
+            }
+            int result = this.copySegment();
+            if ((result == MjpegFrameSource.COMPLETE) && (marker == MjpegFrameSource.SOS)) {
+                result = this.copyEntropyCodedData();
+            }
+            if (result != MjpegFrameSource.COMPLETE) {
+                return result;
+            }
+        }
+    }
+
+    private boolean findStartOfImage() throws IOException {
+        int previous = -1;
+        int b;
+        while ((b = this.in.read()) >= 0) {
+            if ((previous == 0xff) && (b == MjpegFrameSource.SOI)) {
+                return true;
+            }
+            previous = b;
+        }
+        return false;
+    }
+
+    /* marker code after 0xff and any fill bytes, END or CORRUPT */
+    private int readMarker() throws IOException {
+        int b = this.in.read();
+        if (b < 0) {
+            return MjpegFrameSource.END;
+        }
+        if (b != 0xff) {
+            return MjpegFrameSource.CORRUPT;
+        }
+        do {
+            b = this.in.read();
+        } while (b == 0xff);
+        if (b < 0) {
+            return MjpegFrameSource.END;
+        }
+        if ((b != MjpegFrameSource.TEM) && (b < 0xc0)) {
+            return MjpegFrameSource.CORRUPT; // reserved or a stuffed byte out of a scan
+        }
+        return b;
+    }
+
+    /* copies a segment with its length field, COMPLETE, END or CORRUPT */
+    private int copySegment() throws IOException {
+        int high = this.in.read();
+        int low = this.in.read();
+        if ((high < 0) || (low < 0)) {
+            return MjpegFrameSource.END;
+        }
+        this.put(high);
+        this.put(low);
+        int remaining = ((high << 8) | low) - 2;
+        if (remaining < 0) {
+            return MjpegFrameSource.CORRUPT;
+        }
+        this.ensureCapacity(remaining);
+        while (remaining > 0) {
+            int n = this.in.read(this.frame, this.length, remaining);
+            if (n < 0) {
+                return MjpegFrameSource.END;
+            }
+            this.length += n;
+            remaining -= n;
+        }
+        return MjpegFrameSource.COMPLETE;
+    }
+
+    /* copies the scan up to the next marker, which is left in pendingMarker, COMPLETE, END or CORRUPT */
+    private int copyEntropyCodedData() throws IOException {
+        int b;
+        while ((b = this.in.read()) >= 0) {
+            if (b != 0xff) {
+                this.put(b);
+                continue;
+            }
+            int next;
+            do {
+                next = this.in.read();
+            } while (next == 0xff);
+            if (next < 0) {
+                return MjpegFrameSource.END;
+            }
+            if ((next == 0) || ((next >= MjpegFrameSource.RST0) && (next <= MjpegFrameSource.RST7))) {
+                this.put(0xff); // stuffed byte or restart marker, part of the scan
+                this.put(next);
+                continue;
+            }
+            if ((next != MjpegFrameSource.TEM) && (next < 0xc0)) {
+                return MjpegFrameSource.CORRUPT;
+            }
+            this.pendingMarker = next;
+            return MjpegFrameSource.COMPLETE;
+        }
+        return MjpegFrameSource.END;
+    }
+
+    private void put(int b) {
+        this.ensureCapacity(1);
+        this.frame[this.length++] = (byte) b;
+    }
+
+    private void ensureCapacity(int more) {
+        if ((this.length + more) > this.frame.length) {
+            byte[] grown = new byte[Math.max(this.frame.length * 2, this.length + more)];
+            System.arraycopy(this.frame, 0, grown, 0, this.length);
+            this.frame = grown;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.in.close();
+    }
+}
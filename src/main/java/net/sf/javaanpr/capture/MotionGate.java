@@ -0,0 +1,225 @@
+/*
+------------------------------------------------------------------------
+JavaANPR - Automatic Number Plate Recognition System for Java
+------------------------------------------------------------------------
+
+This file is a part of the JavaANPR, licensed under the terms of the
+Educational Community License
+
+Copyright (c) 2006-2007 Ondrej Martinsky. All rights reserved
+
+This Original Work, including software, source code, documents, or
+other related items, is being provided by the copyright holder(s)
+subject to the terms of the Educational Community License. By
+obtaining, using and/or copying this Original Work, you agree that you
+have read, understand, and will comply with the following terms and
+conditions of the Educational Community License:
+
+Permission to use, copy, modify, merge, publish, distribute, and
+sublicense this Original Work and its documentation, with or without
+modification, for any purpose, and without fee or royalty to the
+copyright holder(s) is hereby granted, provided that you include the
+following on ALL copies of the Original Work or portions thereof,
+including modifications or derivatives, that you make:
+
+# The full text of the Educational Community License in a location
+viewable to users of the redistributed or derivative work.
+
+# Any pre-existing intellectual property disclaimers, notices, or terms
+and conditions.
+
+# Notice of any changes or modifications to the Original Work,
+including the date the changes were made.
+
+# Any modifications of the Original Work must be distributed in such a
+manner as to avoid any confusion with the Original Work of the
+copyright holders.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+The name and trademarks of copyright holder(s) may NOT be used in
+advertising or publicity pertaining to the Original or Derivative Works
+without specific, written prior permission. Title to copyright in the
+Original Work and any associated documentation will at all times remain
+with the copyright holders.
+
+If you want to alter upon this work, you MUST attribute it in
+a) all source files
+b) on every place, where is the copyright of derivated work
+exactly by the following label :
+
+---- label begin ----
+This work is a derivate of the JavaANPR. JavaANPR is a intellectual
+property of Ondrej Martinsky. Please visit http://javaanpr.sourceforge.net
+for more info about JavaANPR.
+----  label end  ----
+
+------------------------------------------------------------------------
+                                         http://javaanpr.sourceforge.net
+------------------------------------------------------------------------
+ */
+
+package net.sf.javaanpr.capture;
+
+import java.util.Arrays;
+
+import net.sf.javaanpr.configurator.Configurator;
+import net.sf.javaanpr.imageanalysis.CarSnapshot;
+import net.sf.javaanpr.imageanalysis.ImageRegion;
+import net.sf.javaanpr.imageanalysis.RegionOfInterest;
+
+/**
+ * Decides whether a frame of a stream is worth recognizing. Every frame is reduced to a small luma thumbnail which is
+ * compared with a running average of the previous ones (the background). The thumbnail is averaged straight from the
+ * luma plane of the snapshot, which is the Y plane of a raw or luma decoded frame and is kept for the recognition
+ * otherwise. Frames in which only a small fraction of the
+ * thumbnail inside of the region of interest differs from the background contain no new vehicle, the result of the
+ * last recognized frame still holds for them.
+ * <p>
+ * A gate keeps the background of a single camera, it is not thread safe.
+ */
+public class MotionGate {
+    private final int thumbnailWidth;
+    private final int pixelThreshold;
+    private final double changedFraction;
+    private final float backgroundRate;
+
+    private float[] background = null;
+    private int backgroundWidth;
+    private int backgroundHeight;
+    private double lastChangedFraction = 0;
+    /* the luma of the last thumbnail, reused */
+    private int[] thumbnail = new int[0];
+
+    /**
+     * Creates a gate with the configured parameters, properties {@code motiongate_*}.
+     */
+    public MotionGate() {
+        this(Configurator.getConfigurator().getIntProperty("motiongate_thumbnailwidth"),
+            Configurator.getConfigurator().getIntProperty("motiongate_pixelthreshold"),
+            Configurator.getConfigurator().getDoubleProperty("motiongate_changedfraction"),
+            Configurator.getConfigurator().getDoubleProperty("motiongate_backgroundrate"));
+    }
+
+    /**
+     * @param thumbnailWidth frames are compared downscaled to about this width
+     * @param pixelThreshold a thumbnail pixel has changed if its luma differs from the background by more than this
+     * @param changedFraction a frame has motion if more than this fraction of the thumbnail pixels has changed
+     * @param backgroundRate weight of every frame in the running average, 0..1
+     */
+    public MotionGate(int thumbnailWidth, int pixelThreshold, double changedFraction, double backgroundRate) {
+        if ((thumbnailWidth < 1) || (backgroundRate < 0) || (backgroundRate > 1)) {
+            throw new IllegalArgumentException("Invalid motion gate parameters");
+        }
+        this.thumbnailWidth = thumbnailWidth;
+        this.pixelThreshold = pixelThreshold;
+        this.changedFraction = changedFraction;
+        this.backgroundRate = (float) backgroundRate;
+    }
+
+    /**
+     * Compares a frame with the background and adds it to the background. The first frame, and every frame of a
+     * different size than the previous one, has motion.
+     *
+     * @param snapshot the frame
+     * @return true if the frame should be recognized
+     */
+    public boolean hasMotion(CarSnapshot snapshot) {
+        ImageRegion plane = snapshot.getRegion();
+        int factor = Math.max(1, (plane.getWidth() + this.thumbnailWidth - 1) / this.thumbnailWidth);
+        int w = Math.max(1, plane.getWidth() / factor);
+        int h = Math.max(1, plane.getHeight() / factor);
+        this.downscale(plane, factor, w, h);
+        int[] luma = this.thumbnail;
+
+        if ((this.background == null) || (this.backgroundWidth != w) || (this.backgroundHeight != h)) {
+            this.background = new float[w * h];
+            for (int i = 0; i < (w * h); i++) {
+                this.background[i] = luma[i];
+            }
+            this.backgroundWidth = w;
+            this.backgroundHeight = h;
+            this.lastChangedFraction = 1;
+            return true;
+        }
+
+        // only the thumbnail pixels inside of the region of interest are compared
+        RegionOfInterest region = snapshot.getRegionOfInterest();
+        int[][] spans = null;
+        if (region != null) {
+            spans = region.getRowSpans(snapshot.getScale() * factor, w, 0, h);
+        }
+        int[] whole = { 0, w };
+        int compared = 0;
+        int changed = 0;
+        for (int y = 0; y < h; y++) {
+            int[] span = (spans == null) ? whole : spans[y];
+            for (int s = 0; s < span.length; s += 2) {
+                for (int x = span[s]; x < span[s + 1]; x++) {
+                    int i = (y * w) + x;
+                    compared++;
+                    if (Math.abs(luma[i] - this.background[i]) > this.pixelThreshold) {
+                        changed++;
+                    }
+                }
+            }
+            for (int x = 0; x < w; x++) {
+                int i = (y * w) + x;
+                this.background[i] += this.backgroundRate * (luma[i] - this.background[i]);
+            }
+        }
+        this.lastChangedFraction = compared == 0 ? 0 : (double) changed / compared;
+        return this.lastChangedFraction > this.changedFraction;
+    }
+
+    /**
+     * Averages blocks of factor x factor pixels of a luma plane into the thumbnail, the pixels on the right and bottom
+     * edge that do not fill a whole block are dropped.
+     */
+    private void downscale(ImageRegion plane, int factor, int w, int h) {
+        if (this.thumbnail.length < (w * h)) {
+            this.thumbnail = new int[w * h];
+        }
+        Arrays.fill(this.thumbnail, 0, w * h, 0);
+        int blockWidth = Math.min(factor, plane.getWidth());
+        int blockHeight = Math.min(factor, plane.getHeight());
+        byte[] data = plane.getData();
+        int stride = plane.getStride();
+        for (int y = 0; y < (h * blockHeight); y++) {
+            int row = plane.getOffset() + (y * stride);
+            int out = (y / blockHeight) * w;
+            for (int block = 0; block < w; block++) {
+                int sum = 0;
+                int start = row + (block * blockWidth);
+                for (int x = start; x < (start + blockWidth); x++) {
+                    sum += data[x] & 0xff;
+                }
+                this.thumbnail[out + block] += sum;
+            }
+        }
+        int count = blockWidth * blockHeight;
+        for (int i = 0; i < (w * h); i++) {
+            this.thumbnail[i] /= count;
+        }
+    }
+
+    /**
+     * @return the fraction of the thumbnail pixels that differed from the background in the last frame
+     */
+    public double getLastChangedFraction() {
+        return this.lastChangedFraction;
+    }
+
+    /**
+     * Forgets the background, e.g. after the camera has been moved.
+     */
+    public void reset() {
+        this.background = null;
+    }
+}
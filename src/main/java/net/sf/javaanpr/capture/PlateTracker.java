@@ -0,0 +1,174 @@
+/*
+------------------------------------------------------------------------
+JavaANPR - Automatic Number Plate Recognition System for Java
+------------------------------------------------------------------------
+
+This file is a part of the JavaANPR, licensed under the terms of the
+Educational Community License
+
+Copyright (c) 2006-2007 Ondrej Martinsky. All rights reserved
+
+This Original Work, including software, source code, documents, or
+other related items, is being provided by the copyright holder(s)
+subject to the terms of the Educational Community License. By
+obtaining, using and/or copying this Original Work, you agree that you
+have read, understand, and will comply with the following terms and
+conditions of the Educational Community License:
+
+Permission to use, copy, modify, merge, publish, distribute, and
+sublicense this Original Work and its documentation, with or without
+modification, for any purpose, and without fee or royalty to the
+copyright holder(s) is hereby granted, provided that you include the
+following on ALL copies of the Original Work or portions thereof,
+including modifications or derivatives, that you make:
+
+# The full text of the Educational Community License in a location
+viewable to users of the redistributed or derivative work.
+
+# Any pre-existing intellectual property disclaimers, notices, or terms
+and conditions.
+
+# Notice of any changes or modifications to the Original Work,
+including the date the changes were made.
+
+# Any modifications of the Original Work must be distributed in such a
+manner as to avoid any confusion with the Original Work of the
+copyright holders.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+The name and trademarks of copyright holder(s) may NOT be used in
+advertising or publicity pertaining to the Original or Derivative Works
+without specific, written prior permission. Title to copyright in the
+Original Work and any associated documentation will at all times remain
+with the copyright holders.
+
+If you want to alter upon this work, you MUST attribute it in
+a) all source files
+b) on every place, where is the copyright of derivated work
+exactly by the following label :
+
+---- label begin ----
+This work is a derivate of the JavaANPR. JavaANPR is a intellectual
+property of Ondrej Martinsky. Please visit http://javaanpr.sourceforge.net
+for more info about JavaANPR.
+----  label end  ----
+
+------------------------------------------------------------------------
+                                         http://javaanpr.sourceforge.net
+------------------------------------------------------------------------
+ */
+
+package net.sf.javaanpr.capture;
+
+import java.awt.Rectangle;
+import java.awt.geom.Area;
+
+import net.sf.javaanpr.configurator.Configurator;
+import net.sf.javaanpr.imageanalysis.CarSnapshot;
+import net.sf.javaanpr.imageanalysis.RegionOfInterest;
+import net.sf.javaanpr.intelligence.Intelligence;
+import net.sf.javaanpr.intelligence.RecognitionResult;
+
+/**
+ * Recognizes consecutive frames of a single camera. A vehicle standing or slowly moving in front of the camera has its
+ * plate at almost the same position in every frame, so the plate is first searched for in a window around the plate
+ * found in the previous frame. The whole frame (or its region of interest) is searched only if there is no plate in the
+ * window.
+ * <p>
+ * A tracker keeps the position of a single camera, it is not thread safe.
+ */
+public class PlateTracker {
+    private final Intelligence intelligence;
+    private final double marginX;
+    private final double marginY;
+
+    /* the plate found in the previous frame, in source image coordinates */
+    private Rectangle lastBounds = null;
+    private boolean lastTracked = false;
+
+    /**
+     * Creates a tracker with the configured window margins, properties {@code platetracker_margin*}.
+     *
+     * @param intelligence recognizes the frames
+     */
+    public PlateTracker(Intelligence intelligence) {
+        this(intelligence, Configurator.getConfigurator().getDoubleProperty("platetracker_marginx"), Configurator
+            .getConfigurator().getDoubleProperty("platetracker_marginy"));
+    }
+
+    /**
+     * @param intelligence recognizes the frames
+     * @param marginX the window is wider than the previous plate by this multiple of the plate width on both sides
+     * @param marginY the window is higher than the previous plate by this multiple of the plate height on both sides
+     */
+    public PlateTracker(Intelligence intelligence, double marginX, double marginY) {
+        this.intelligence = intelligence;
+        this.marginX = marginX;
+        this.marginY = marginY;
+    }
+
+    /**
+     * Recognizes a frame, searching the window around the previous plate first.
+     *
+     * @param snapshot the frame
+     * @return the plate, or null if there is none
+     */
+    public RecognitionResult recognize(CarSnapshot snapshot) {
+        RegionOfInterest region = snapshot.getRegionOfInterest();
+        if (this.lastBounds != null) {
+            snapshot.setRegionOfInterest(this.getWindow(region));
+            RecognitionResult result = this.intelligence.recognizePlate(snapshot);
+            snapshot.setRegionOfInterest(region);
+            if (result != null) {
+                this.update(result, true);
+                return result;
+            }
+        }
+        RecognitionResult result = this.intelligence.recognizePlate(snapshot);
+        this.update(result, false);
+        return result;
+    }
+
+    private void update(RecognitionResult result, boolean tracked) {
+        this.lastBounds = (result == null) ? null : result.getBounds();
+        this.lastTracked = tracked;
+    }
+
+    /**
+     * @return the window around the previous plate, limited to the region of interest of the camera
+     */
+    private RegionOfInterest getWindow(RegionOfInterest region) {
+        Rectangle b = this.lastBounds;
+        int dx = (int) Math.ceil(b.width * this.marginX);
+        int dy = (int) Math.ceil(b.height * this.marginY);
+        Rectangle window = new Rectangle(b.x - dx, b.y - dy, b.width + (2 * dx), b.height + (2 * dy));
+        if (region == null) {
+            return new RegionOfInterest(window);
+        }
+        Area area = new Area(region.getShape());
+        area.intersect(new Area(window));
+        return new RegionOfInterest(area);
+    }
+
+    /**
+     * @return true if the plate of the last frame has been found in the window around the previous one
+     */
+    public boolean isLastTracked() {
+        return this.lastTracked;
+    }
+
+    /**
+     * Forgets the previous plate, the next frame is searched whole.
+     */
+    public void reset() {
+        this.lastBounds = null;
+        this.lastTracked = false;
+    }
+}
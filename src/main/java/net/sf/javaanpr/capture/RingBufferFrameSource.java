@@ -0,0 +1,285 @@
+/*
+------------------------------------------------------------------------
+JavaANPR - Automatic Number Plate Recognition System for Java
+------------------------------------------------------------------------
+
+This file is a part of the JavaANPR, licensed under the terms of the
+Educational Community License
+
+Copyright (c) 2006-2007 Ondrej Martinsky. All rights reserved
+
+This Original Work, including software, source code, documents, or
+other related items, is being provided by the copyright holder(s)
+subject to the terms of the Educational Community License. By
+obtaining, using and/or copying this Original Work, you agree that you
+have read, understand, and will comply with the following terms and
+conditions of the Educational Community License:
+
+Permission to use, copy, modify, merge, publish, distribute, and
+sublicense this Original Work and its documentation, with or without
+modification, for any purpose, and without fee or royalty to the
+copyright holder(s) is hereby granted, provided that you include the
+following on ALL copies of the Original Work or portions thereof,
+including modifications or derivatives, that you make:
+
+# The full text of the Educational Community License in a location
+viewable to users of the redistributed or derivative work.
+
+# Any pre-existing intellectual property disclaimers, notices, or terms
+and conditions.
+
+# Notice of any changes or modifications to the Original Work,
+including the date the changes were made.
+
+# Any modifications of the Original Work must be distributed in such a
+manner as to avoid any confusion with the Original Work of the
+copyright holders.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+The name and trademarks of copyright holder(s) may NOT be used in
+advertising or publicity pertaining to the Original or Derivative Works
+without specific, written prior permission. Title to copyright in the
+Original Work and any associated documentation will at all times remain
+with the copyright holders.
+
+If you want to alter upon this work, you MUST attribute it in
+a) all source files
+b) on every place, where is the copyright of derivated work
+exactly by the following label :
+
+---- label begin ----
+This work is a derivate of the JavaANPR. JavaANPR is a intellectual
+property of Ondrej Martinsky. Please visit http://javaanpr.sourceforge.net
+for more info about JavaANPR.
+----  label end  ----
+
+------------------------------------------------------------------------
+                                         http://javaanpr.sourceforge.net
+------------------------------------------------------------------------
+ */
+
+package net.sf.javaanpr.capture;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import net.sf.javaanpr.imageanalysis.CarSnapshot;
+import net.sf.javaanpr.imageanalysis.RawFrame;
+
+/**
+ * Reads frames published by a capture process into a memory-mapped ring buffer file.
+ * <p>
+ * The file starts with a header of {@link #HEADER_SIZE} bytes: the magic number {@link #MAGIC}, the version, the number
+ * of slots, the size of a slot, the number of frames published so far and a flag set when the producer has finished.
+ * It is followed by the slots. Every slot starts with its own header of {@link #SLOT_HEADER_SIZE} bytes (the sequence
+ * number of the frame, its timestamp, width, height, stride, {@link RawFrame.Format} ordinal and the length of the
+ * pixels in bytes), followed by the pixels. All the fields are little-endian. Frame {@code n} is written into slot
+ * {@code n % slots}; the producer sets the sequence number of the slot to -1 before it writes into the slot, and to
+ * {@code n} after, then increments the number of published frames.
+ * <p>
+ * The pixels of a slot are copied once into a buffer owned by the source and checked against the sequence number again,
+ * as the producer does not wait for the consumer and may reuse the slot at any time. Frames overwritten before they
+ * have been read are skipped, a consumer falling behind the producer continues with the newest frame.
+ */
+public class RingBufferFrameSource implements FrameSource {
+    public static final int MAGIC = 0x52504e41; // "ANPR"
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 64;
+    public static final int SLOT_HEADER_SIZE = 64;
+
+    static final int SLOTS_OFFSET = 8;
+    static final int SLOT_SIZE_OFFSET = 12;
+    static final int PUBLISHED_OFFSET = 16;
+    static final int FINISHED_OFFSET = 24;
+
+    static final int SEQUENCE_OFFSET = 0;
+    static final int TIMESTAMP_OFFSET = 8;
+    static final int WIDTH_OFFSET = 16;
+    static final int HEIGHT_OFFSET = 20;
+    static final int STRIDE_OFFSET = 24;
+    static final int FORMAT_OFFSET = 28;
+    static final int LENGTH_OFFSET = 32;
+
+    private final RandomAccessFile file;
+    private final MappedByteBuffer buffer;
+    private final int slots;
+    private final int slotSize;
+    private final long pollInterval;
+
+    private long next = 0;
+    private long dropped = 0;
+    private long sequence = -1;
+    private long timestamp = 0;
+    private byte[] bytes = new byte[0];
+    private int[] ints = new int[0];
+
+    /**
+     * Maps a ring buffer file.
+     *
+     * @param file the file, created by the producer
+     * @param pollInterval milliseconds to wait between the checks for a new frame
+     * @throws IOException if the file cannot be mapped or is not a ring buffer
+     */
+    public RingBufferFrameSource(File file, long pollInterval) throws IOException {
+        this.file = new RandomAccessFile(file, "r");
+        try {
+            this.buffer = this.file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, this.file.length());
+            this.buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if ((this.buffer.capacity() < RingBufferFrameSource.HEADER_SIZE)
+                || (this.buffer.getInt(0) != RingBufferFrameSource.MAGIC)
+                || (this.buffer.getInt(4) != RingBufferFrameSource.VERSION)) {
+                throw new IOException(file + " is not a ring buffer of version " + RingBufferFrameSource.VERSION);
+            }
+            this.slots = this.buffer.getInt(RingBufferFrameSource.SLOTS_OFFSET);
+            this.slotSize = this.buffer.getInt(RingBufferFrameSource.SLOT_SIZE_OFFSET);
+            if ((this.slots <= 0) || (this.slotSize <= RingBufferFrameSource.SLOT_HEADER_SIZE)
+                || (this.buffer.capacity() < (RingBufferFrameSource.HEADER_SIZE
+                    + ((long) this.slots * this.slotSize)))) {
+                throw new IOException(file + " is truncated");
+            }
+        } catch (IOException e) {
+            this.file.close();
+            throw e;
+        }
+        this.pollInterval = pollInterval;
+    }
+
+    /**
+     * Waits for the next frame published by the producer.
+     *
+     * @return the frame, sharing its pixels with this source until the next call, or null if the producer has finished
+     * @throws IOException if the frame is malformed or the thread has been interrupted
+     */
+    @Override
+    public CarSnapshot nextFrame() throws IOException {
+        while (true) {
+            long published = this.buffer.getLong(RingBufferFrameSource.PUBLISHED_OFFSET);
+            if (this.next >= published) {
+                if (this.buffer.getInt(RingBufferFrameSource.FINISHED_OFFSET) != 0) {
+                    return null;
+                }
+                try {
+                    Thread.sleep(this.pollInterval);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for a frame");
+                }
+                continue;
+            }
+            if ((published - this.next) > this.slots) {
+                // the frames in between have been overwritten
+                this.dropped += (published - 1) - this.next;
+                this.next = published - 1;
+            }
+            RawFrame frame = this.readSlot(this.next);
+            this.next++;
+            if (frame != null) {
+                return new CarSnapshot(frame);
+            }
+            this.dropped++;
+        }
+    }
+
+    /* copies a frame out of its slot, null if the slot has been reused meanwhile */
+    private RawFrame readSlot(long n) throws IOException {
+        int slot = RingBufferFrameSource.HEADER_SIZE + (int) (n % this.slots) * this.slotSize;
+        if (this.buffer.getLong(slot + RingBufferFrameSource.SEQUENCE_OFFSET) != n) {
+            return null;
+        }
+        long time = this.buffer.getLong(slot + RingBufferFrameSource.TIMESTAMP_OFFSET);
+        int width = this.buffer.getInt(slot + RingBufferFrameSource.WIDTH_OFFSET);
+        int height = this.buffer.getInt(slot + RingBufferFrameSource.HEIGHT_OFFSET);
+        int stride = this.buffer.getInt(slot + RingBufferFrameSource.STRIDE_OFFSET);
+        int format = this.buffer.getInt(slot + RingBufferFrameSource.FORMAT_OFFSET);
+        int length = this.buffer.getInt(slot + RingBufferFrameSource.LENGTH_OFFSET);
+        if ((format < 0) || (format >= RawFrame.Format.values().length) || (length < 0)
+            || (length > (this.slotSize - RingBufferFrameSource.SLOT_HEADER_SIZE))) {
+            throw new IOException("Malformed slot of frame " + n);
+        }
+
+        ByteBuffer pixels = this.buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        pixels.position(slot + RingBufferFrameSource.SLOT_HEADER_SIZE);
+        RawFrame.Format pixelFormat = RawFrame.Format.values()[format];
+        if (pixelFormat == RawFrame.Format.ARGB) {
+            if (this.ints.length < (length / 4)) {
+                this.ints = new int[length / 4];
+            }
+            pixels.asIntBuffer().get(this.ints, 0, length / 4);
+        } else {
+            if (this.bytes.length < length) {
+                this.bytes = new byte[length];
+            }
+            pixels.get(this.bytes, 0, length);
+        }
+        this.copied(n);
+        if (this.buffer.getLong(slot + RingBufferFrameSource.SEQUENCE_OFFSET) != n) {
+            return null; // overwritten while being copied
+        }
+        // the buffers are reused, pixels the slot does not hold would be left over from an earlier frame
+        int elementSize = (pixelFormat == RawFrame.Format.ARGB) ? 4 : 1;
+        if ((width > 0) && (height > 0) && (stride >= width)
+            && ((RawFrame.frameLength(pixelFormat, width, height, stride) * elementSize) > length)) {
+            throw new IOException("Malformed slot of frame " + n + ": " + pixelFormat + " frame " + width + "x"
+                + height + " (stride " + stride + ") does not fit into " + length + " bytes");
+        }
+
+        this.sequence = n;
+        this.timestamp = time;
+        try {
+            if (pixelFormat == RawFrame.Format.ARGB) {
+                return new RawFrame(this.ints, 0, width, height, stride);
+            }
+            return new RawFrame(this.bytes, 0, width, height, stride, pixelFormat);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Malformed slot of frame " + n + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Called after the pixels of a frame have been copied out of its slot, before the slot is checked again. Does
+     * nothing, tests override it to let the producer reuse the slot in between.
+     *
+     * @param n the sequence number of the frame
+     */
+    void copied(long n) {
+    }
+
+    /**
+     * @return the sequence number of the last frame returned, -1 if none
+     */
+    public long getSequence() {
+        return this.sequence;
+    }
+
+    /**
+     * @return the timestamp the producer has given the last frame returned
+     */
+    public long getTimestamp() {
+        return this.timestamp;
+    }
+
+    /**
+     * @return the number of frames overwritten by the producer before they could be read
+     */
+    public long getDroppedFrames() {
+        return this.dropped;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.file.close();
+    }
+}
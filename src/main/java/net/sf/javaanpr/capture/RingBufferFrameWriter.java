@@ -0,0 +1,185 @@
+/*
+------------------------------------------------------------------------
+JavaANPR - Automatic Number Plate Recognition System for Java
+------------------------------------------------------------------------
+
+This file is a part of the JavaANPR, licensed under the terms of the
+Educational Community License
+
+Copyright (c) 2006-2007 Ondrej Martinsky. All rights reserved
+
+This Original Work, including software, source code, documents, or
+other related items, is being provided by the copyright holder(s)
+subject to the terms of the Educational Community License. By
+obtaining, using and/or copying this Original Work, you agree that you
+have read, understand, and will comply with the following terms and
+conditions of the Educational Community License:
+
+Permission to use, copy, modify, merge, publish, distribute, and
+sublicense this Original Work and its documentation, with or without
+modification, for any purpose, and without fee or royalty to the
+copyright holder(s) is hereby granted, provided that you include the
+following on ALL copies of the Original Work or portions thereof,
+including modifications or derivatives, that you make:
+
+# The full text of the Educational Community License in a location
+viewable to users of the redistributed or derivative work.
+
+# Any pre-existing intellectual property disclaimers, notices, or terms
+and conditions.
+
+# Notice of any changes or modifications to the Original Work,
+including the date the changes were made.
+
+# Any modifications of the Original Work must be distributed in such a
+manner as to avoid any confusion with the Original Work of the
+copyright holders.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+The name and trademarks of copyright holder(s) may NOT be used in
+advertising or publicity pertaining to the Original or Derivative Works
+without specific, written prior permission. Title to copyright in the
+Original Work and any associated documentation will at all times remain
+with the copyright holders.
+
+If you want to alter upon this work, you MUST attribute it in
+a) all source files
+b) on every place, where is the copyright of derivated work
+exactly by the following label :
+
+---- label begin ----
+This work is a derivate of the JavaANPR. JavaANPR is a intellectual
+property of Ondrej Martinsky. Please visit http://javaanpr.sourceforge.net
+for more info about JavaANPR.
+----  label end  ----
+
+------------------------------------------------------------------------
+                                         http://javaanpr.sourceforge.net
+------------------------------------------------------------------------
+ */
+
+package net.sf.javaanpr.capture;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import net.sf.javaanpr.imageanalysis.RawFrame;
+
+/**
+ * Publishes frames into a ring buffer file read by {@link RingBufferFrameSource}, see there for the layout. It stands
+ * in for a native capture process when testing.
+ */
+public class RingBufferFrameWriter implements Closeable {
+    private final RandomAccessFile file;
+    private final MappedByteBuffer buffer;
+    private final int slots;
+    private final int slotSize;
+    private long published = 0;
+
+    /**
+     * Creates (or truncates) a ring buffer file.
+     *
+     * @param file the file
+     * @param slots number of slots
+     * @param maxFrameLength the largest frame, in bytes
+     * @throws IOException if the file cannot be created
+     */
+    public RingBufferFrameWriter(File file, int slots, int maxFrameLength) throws IOException {
+        this.slots = slots;
+        this.slotSize = RingBufferFrameSource.SLOT_HEADER_SIZE + maxFrameLength;
+        long size = RingBufferFrameSource.HEADER_SIZE + ((long) slots * this.slotSize);
+        this.file = new RandomAccessFile(file, "rw");
+        this.file.setLength(0);
+        this.file.setLength(size);
+        this.buffer = this.file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+        this.buffer.order(ByteOrder.LITTLE_ENDIAN);
+        this.buffer.putInt(4, RingBufferFrameSource.VERSION);
+        this.buffer.putInt(RingBufferFrameSource.SLOTS_OFFSET, slots);
+        this.buffer.putInt(RingBufferFrameSource.SLOT_SIZE_OFFSET, this.slotSize);
+        this.buffer.putLong(RingBufferFrameSource.PUBLISHED_OFFSET, 0);
+        this.buffer.putInt(RingBufferFrameSource.FINISHED_OFFSET, 0);
+        this.buffer.putInt(0, RingBufferFrameSource.MAGIC);
+    }
+
+    /**
+     * Publishes a frame of one of the byte formats.
+     *
+     * @param pixels the frame, from offset 0
+     * @param length number of bytes of the frame
+     * @param width width of the frame
+     * @param height height of the frame
+     * @param stride stride of the Y (or gray) plane
+     * @param format the pixel format
+     * @param timestamp passed to the consumer
+     */
+    public void write(byte[] pixels, int length, int width, int height, int stride, RawFrame.Format format,
+        long timestamp) {
+        ByteBuffer slot = this.beginSlot(length, width, height, stride, format, timestamp);
+        slot.put(pixels, 0, length);
+        this.publish();
+    }
+
+    /**
+     * Publishes a frame of packed ARGB pixels.
+     *
+     * @param pixels the frame, from offset 0
+     * @param length number of pixels of the frame
+     * @param width width of the frame
+     * @param height height of the frame
+     * @param stride distance between vertically adjacent pixels
+     * @param timestamp passed to the consumer
+     */
+    public void write(int[] pixels, int length, int width, int height, int stride, long timestamp) {
+        ByteBuffer slot = this.beginSlot(length * 4, width, height, stride, RawFrame.Format.ARGB, timestamp);
+        slot.asIntBuffer().put(pixels, 0, length);
+        this.publish();
+    }
+
+    private ByteBuffer beginSlot(int length, int width, int height, int stride, RawFrame.Format format,
+        long timestamp) {
+        if (length > (this.slotSize - RingBufferFrameSource.SLOT_HEADER_SIZE)) {
+            throw new IllegalArgumentException("Frame of " + length + " bytes does not fit into a slot");
+        }
+        int slot = RingBufferFrameSource.HEADER_SIZE + (int) (this.published % this.slots) * this.slotSize;
+        this.buffer.putLong(slot + RingBufferFrameSource.SEQUENCE_OFFSET, -1);
+        this.buffer.putLong(slot + RingBufferFrameSource.TIMESTAMP_OFFSET, timestamp);
+        this.buffer.putInt(slot + RingBufferFrameSource.WIDTH_OFFSET, width);
+        this.buffer.putInt(slot + RingBufferFrameSource.HEIGHT_OFFSET, height);
+        this.buffer.putInt(slot + RingBufferFrameSource.STRIDE_OFFSET, stride);
+        this.buffer.putInt(slot + RingBufferFrameSource.FORMAT_OFFSET, format.ordinal());
+        this.buffer.putInt(slot + RingBufferFrameSource.LENGTH_OFFSET, length);
+        ByteBuffer pixels = this.buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        pixels.position(slot + RingBufferFrameSource.SLOT_HEADER_SIZE);
+        return pixels;
+    }
+
+    private void publish() {
+        int slot = RingBufferFrameSource.HEADER_SIZE + (int) (this.published % this.slots) * this.slotSize;
+        this.buffer.putLong(slot + RingBufferFrameSource.SEQUENCE_OFFSET, this.published);
+        this.published++;
+        this.buffer.putLong(RingBufferFrameSource.PUBLISHED_OFFSET, this.published);
+    }
+
+    /**
+     * Marks the ring buffer as finished, the consumer returns the remaining frames and stops.
+     */
+    @Override
+    public void close() throws IOException {
+        this.buffer.putInt(RingBufferFrameSource.FINISHED_OFFSET, 1);
+        this.buffer.force();
+        this.file.close();
+    }
+}
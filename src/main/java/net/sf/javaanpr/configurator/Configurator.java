@@ -99,6 +99,9 @@ public class Configurator {
         // adaptive thresholding radius (0 = no adaptive)
         this.setIntProperty("photo_adaptivethresholdingradius", 7); // 7 is
         // recommanded
+        // filters of images with at least this many pixels run in parallel
+        // (0 = never)
+        this.setIntProperty("photo_parallelthreshold", 1 << 18);
 
         // BANDGRAPH - spracovanie horizontalnej projekcie detekovanej oblasti
         // znacky
@@ -110,6 +113,53 @@ public class Configurator {
         // CARSNAPSHOT
         this.setIntProperty("carsnapshot_distributormargins", 25);
         this.setIntProperty("carsnapshot_graphrankfilter", 9);
+        // bands are searched for on the image downscaled 2^N times (0 = full
+        // resolution)
+        this.setIntProperty("carsnapshot_pyramidlevel", 0);
+        // JPEG snapshots are loaded as their luma channel, without the color
+        // conversion (0 = RGB)
+        this.setIntProperty("carsnapshot_lumadecode", 0);
+        // wider snapshots are decoded subsampled and resized down to this width
+        // (0 = native resolution)
+        this.setIntProperty("carsnapshot_workingwidth", 0);
+        // snapshots are kept in the compact layout of the decoder and the edge
+        // detection converts this many rows at a time (0 = whole image)
+        this.setIntProperty("carsnapshot_stripheight", 0);
+        // bands are only searched for in this region of the source images,
+        // see RegionOfInterest.parse (empty = whole image); a camera can have
+        // its own region in carsnapshot_roi.<camera>
+        this.setStrProperty("carsnapshot_roi", "");
+
+        // MOTIONGATE - frames of a stream without motion are not recognized
+        // frames are compared downscaled to about this width
+        this.setIntProperty("motiongate_thumbnailwidth", 40);
+        // luma difference from the background counted as a change
+        this.setIntProperty("motiongate_pixelthreshold", 24);
+        // fraction of changed pixels needed for motion (0 = every change)
+        this.setDoubleProperty("motiongate_changedfraction", 0.01);
+        // weight of every frame in the background
+        this.setDoubleProperty("motiongate_backgroundrate", 0.05);
+
+        // PLATETRACKER - the plate of a stream frame is first searched for
+        // around the plate of the previous frame, the window is larger than
+        // the previous plate by this multiple of its width (height) per side
+        this.setDoubleProperty("platetracker_marginx", 1.0);
+        this.setDoubleProperty("platetracker_marginy", 1.5);
+
+        // FUSION - plates of one vehicle recognized in several frames are fused,
+        // the vehicle is not recognized any more once at least this number of
+        // frames has been fused and this share of them agrees on every
+        // character
+        this.setIntProperty("fusion_minimumframes", 3);
+        this.setDoubleProperty("fusion_minimumconfidence", 0.6);
+        // a vehicle with a confident plate is still recognized every this
+        // number of frames, to notice that the plate is lost or has changed
+        this.setIntProperty("fusion_recheckinterval", 5);
+        // a plate differing from the fused one in more than this number of
+        // characters disagrees with it, this number of disagreeing plates in
+        // a row is another vehicle
+        this.setIntProperty("fusion_maxdifferences", 2);
+        this.setIntProperty("fusion_disagreementframes", 2);
 
         // CARSNAPSHOTGRAPH
         this.setDoubleProperty("carsnapshotgraph_peakfootconstant", 0.55); // 0.55
@@ -223,6 +273,10 @@ public class Configurator {
         return this.fileName;
     }
 
+    public boolean hasProperty(String name) {
+        return this.list.getProperty(name) != null;
+    }
+
     public String getStrProperty(String name) {
         return this.list.getProperty(name).toString();
     }
@@ -0,0 +1,214 @@
+/*
+------------------------------------------------------------------------
+JavaANPR - Automatic Number Plate Recognition System for Java
+------------------------------------------------------------------------
+
+This file is a part of the JavaANPR, licensed under the terms of the
+Educational Community License
+
+Copyright (c) 2006-2007 Ondrej Martinsky. All rights reserved
+
+This Original Work, including software, source code, documents, or
+other related items, is being provided by the copyright holder(s)
+subject to the terms of the Educational Community License. By
+obtaining, using and/or copying this Original Work, you agree that you
+have read, understand, and will comply with the following terms and
+conditions of the Educational Community License:
+
+Permission to use, copy, modify, merge, publish, distribute, and
+sublicense this Original Work and its documentation, with or without
+modification, for any purpose, and without fee or royalty to the
+copyright holder(s) is hereby granted, provided that you include the
+following on ALL copies of the Original Work or portions thereof,
+including modifications or derivatives, that you make:
+
+# The full text of the Educational Community License in a location
+viewable to users of the redistributed or derivative work.
+
+# Any pre-existing intellectual property disclaimers, notices, or terms
+and conditions.
+
+# Notice of any changes or modifications to the Original Work,
+including the date the changes were made.
+
+# Any modifications of the Original Work must be distributed in such a
+manner as to avoid any confusion with the Original Work of the
+copyright holders.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+The name and trademarks of copyright holder(s) may NOT be used in
+advertising or publicity pertaining to the Original or Derivative Works
+without specific, written prior permission. Title to copyright in the
+Original Work and any associated documentation will at all times remain
+with the copyright holders.
+
+If you want to alter upon this work, you MUST attribute it in
+a) all source files
+b) on every place, where is the copyright of derivated work
+exactly by the following label :
+
+---- label begin ----
+This work is a derivate of the JavaANPR. JavaANPR is a intellectual
+property of Ondrej Martinsky. Please visit http://javaanpr.sourceforge.net
+for more info about JavaANPR.
+----  label end  ----
+
+------------------------------------------------------------------------
+                                         http://javaanpr.sourceforge.net
+------------------------------------------------------------------------
+ */
+
+package net.sf.javaanpr.imageanalysis;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Weighted average (box filter) downscaling of luma planes, see {@link Photo#averageResize(int, int)}.
+ * <p>
+ * Every target pixel is the average of a block of source pixels. The block bounds depend only on the source and target
+ * sizes, so they are computed once per pair of sizes and cached, the {@value #CACHE_SIZE} most recently used pairs are
+ * kept. Block sums are taken from prefix sums of the source
+ * columns, in integers, which makes the cost per target pixel independent of the block size. The result is identical to
+ * averaging the block brightness in floating point: the few pixels whose average lies too close to a rounding boundary
+ * are averaged the original way.
+ */
+final class AverageResizer {
+    /** the number of pairs of sizes kept in the cache */
+    static final int CACHE_SIZE = 64;
+    private static final int MAX_CACHED_SIZE = 0xffff;
+    /* resizers in the order of their last use, guarded by itself */
+    private static final Map<Long, AverageResizer> cache = new LinkedHashMap<Long, AverageResizer>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, AverageResizer> eldest) {
+            return this.size() > AverageResizer.CACHE_SIZE;
+        }
+    };
+
+    private final int originWidth;
+    private final int originHeight;
+    private final int width;
+    private final int height;
+    /* source block of target column x is <xMin[x], xMax[x]), the same for rows */
+    private final int[] xMin;
+    private final int[] xMax;
+    private final int[] yMin;
+    private final int[] yMax;
+
+    private AverageResizer(int originWidth, int originHeight, int width, int height) {
+        this.originWidth = originWidth;
+        this.originHeight = originHeight;
+        this.width = width;
+        this.height = height;
+
+        float xScale = (float) originWidth / width;
+        float yScale = (float) originHeight / height;
+        this.xMin = new int[width];
+        this.xMax = new int[width];
+        for (int x = 0; x < width; x++) {
+            this.xMin[x] = Math.round(x * xScale);
+            this.xMax[x] = Math.round((x + 1) * xScale);
+        }
+        this.yMin = new int[height];
+        this.yMax = new int[height];
+        for (int y = 0; y < height; y++) {
+            this.yMin[y] = Math.round(y * yScale);
+            this.yMax[y] = Math.round((y + 1) * yScale);
+        }
+    }
+
+    /**
+     * Returns the (cached) resizer for the given sizes.
+     */
+    static AverageResizer get(int originWidth, int originHeight, int width, int height) {
+        if ((originWidth > AverageResizer.MAX_CACHED_SIZE) || (originHeight > AverageResizer.MAX_CACHED_SIZE)
+            || (width > AverageResizer.MAX_CACHED_SIZE) || (height > AverageResizer.MAX_CACHED_SIZE)) {
+            return new AverageResizer(originWidth, originHeight, width, height);
+        }
+        Long key = ((long) originWidth << 48) | ((long) originHeight << 32) | ((long) width << 16) | height;
+        synchronized (AverageResizer.cache) {
+            AverageResizer resizer = AverageResizer.cache.get(key);
+            if (resizer == null) {
+                resizer = new AverageResizer(originWidth, originHeight, width, height);
+                AverageResizer.cache.put(key, resizer);
+            }
+            return resizer;
+        }
+    }
+
+    /**
+     * @param origin row-major luma plane of {@code originWidth * originHeight} bytes
+     * @return the resized plane, {@code width * height} bytes
+     */
+    byte[] resize(byte[] origin) {
+        byte[] resized = new byte[this.width * this.height];
+        // prefix[y0] = sum of the current source block columns over the rows <0, y0)
+        int[] prefix = RecognitionContext.get().getInts(this.originHeight + 1);
+        prefix[0] = 0;
+
+        for (int x = 0; x < this.width; x++) {
+            int x0min = this.xMin[x];
+            int x0max = this.xMax[x];
+            for (int y0 = 0; y0 < this.originHeight; y0++) {
+                int rowSum = 0;
+                int row = y0 * this.originWidth;
+                for (int x0 = x0min; x0 < x0max; x0++) {
+                    rowSum += origin[row + x0] & 0xff;
+                }
+                prefix[y0 + 1] = prefix[y0] + rowSum;
+            }
+
+            for (int y = 0; y < this.height; y++) {
+                int y0min = this.yMin[y];
+                int y0max = this.yMax[y];
+                int count = (x0max - x0min) * (y0max - y0min);
+                int sum = prefix[y0max] - prefix[y0min];
+                int luma;
+                if (count <= 0) {
+                    luma = Photo.toLuma(Float.NaN); // 0 / 0, as the float average would give
+                } else {
+                    // the average rounds to the nearest luma, unless it is (nearly) halfway between two
+                    double fraction = (double) (sum % count) / count;
+                    if (Math.abs(fraction - 0.5) > AverageResizer.roundingMargin(count)) {
+                        luma = (sum / count) + (fraction > 0.5 ? 1 : 0);
+                    } else {
+                        luma = Photo.toLuma(this.blockAverage(origin, x0min, x0max, y0min, y0max));
+                    }
+                }
+                resized[(y * this.width) + x] = (byte) luma;
+            }
+        }
+        return resized;
+    }
+
+    /**
+     * Bound of the error (in luma units) of the floating point block average, which sums {@code count} rounded
+     * brightness values, divides the sum and scales it back to luma.
+     */
+    private static double roundingMargin(int count) {
+        return (256.0 * (count + 8)) / (1 << 24);
+    }
+
+    /** block average in floating point, in the summation order of the original resize */
+    private float blockAverage(byte[] origin, int x0min, int x0max, int y0min, int y0max) {
+        float sum = 0;
+        int sumCount = 0;
+        for (int x0 = x0min; x0 < x0max; x0++) {
+            for (int y0 = y0min; y0 < y0max; y0++) {
+                sum += Photo.BRIGHTNESS[origin[(y0 * this.originWidth) + x0] & 0xff];
+                sumCount++;
+            }
+        }
+        sum /= sumCount;
+        return sum;
+    }
+}
@@ -68,8 +68,6 @@ for more info about JavaANPR.
 package net.sf.javaanpr.imageanalysis;
 
 import java.awt.image.BufferedImage;
-import java.awt.image.ConvolveOp;
-import java.awt.image.Kernel;
 //import java.io.IOException;
 import java.util.Vector;
 
@@ -88,6 +86,14 @@ public class Band extends Photo {
         super(bi);
     }
 
+    /**
+     * @param bi the image of the band
+     * @param region the luma plane of the image, see {@link Photo#Photo(BufferedImage, ImageRegion)}
+     */
+    public Band(BufferedImage bi, ImageRegion region) {
+        super(bi, region);
+    }
+
     public BufferedImage renderGraph() {
         this.computeGraph();
         return this.graphHandle.renderHorizontally(this.getWidth(), 100);
@@ -97,10 +103,11 @@ public class Band extends Photo {
         if (this.graphHandle != null) {
             return this.graphHandle.peaks; // graf uz bol vypocitany
         }
-        BufferedImage imageCopy = Photo.duplicateBufferedImage(this.image);
-        this.fullEdgeDetector(imageCopy);
-        this.graphHandle = this.histogram(imageCopy);
-        this.graphHandle.rankFilter(this.image.getHeight());
+        // edge detection and the projection in one pass, see fullEdgeDetector
+        ProjectionProfile profile = new ProjectionProfile(this.getBi());
+        this.graphHandle = new BandGraph(this);
+        this.graphHandle.addPeaks(profile.columnSums(ProjectionProfile.Filter.SOBEL, 0));
+        this.graphHandle.rankFilter(this.getHeight());
         this.graphHandle.applyProbabilityDistributor(Band.distributor);
         this.graphHandle.findPeaks(Band.numberOfCandidates);
         return this.graphHandle.peaks;
@@ -117,7 +124,8 @@ public class Band extends Photo {
             // na suradnice vypocitane z imageCopy musime uplatnit inverznu
             // transformaciu
             Graph.Peak p = peaks.elementAt(i);
-            out.add(new Plate(this.image.getSubimage(p.getLeft(), 0, p.getDiff(), this.image.getHeight())));
+            out.add(new Plate(this.getBi().getSubimage(p.getLeft(), 0, p.getDiff(), this.getHeight()),
+                this.getRegion().getSubregion(p.getLeft(), 0, p.getDiff(), this.getHeight())));
         }
         return out;
     }
@@ -134,10 +142,12 @@ public class Band extends Photo {
 
     public BandGraph histogram(BufferedImage bi) {
         BandGraph graph = new BandGraph(this);
-        for (int x = 0; x < bi.getWidth(); x++) {
+        byte[] luma = Photo.computeLuma(bi);
+        int w = bi.getWidth();
+        for (int x = 0; x < w; x++) {
             float counter = 0;
             for (int y = 0; y < bi.getHeight(); y++) {
-                counter += Photo.getBrightness(bi, x, y);
+                counter += Photo.BRIGHTNESS[luma[(y * w) + x] & 0xff];
             }
             graph.addPeak(counter);
         }
@@ -145,27 +155,43 @@ public class Band extends Photo {
     }
 
     public void fullEdgeDetector(BufferedImage source) {
-        float verticalMatrix[] = { -1, 0, 1, -2, 0, 2, -1, 0, 1, };
-        float horizontalMatrix[] = { -1, -2, -1, 0, 0, 0, 1, 2, 1 };
-
-        BufferedImage i1 = Photo.createBlankBi(source);
-        BufferedImage i2 = Photo.createBlankBi(source);
-
-        new ConvolveOp(new Kernel(3, 3, verticalMatrix), ConvolveOp.EDGE_NO_OP, null).filter(source, i1);
-        new ConvolveOp(new Kernel(3, 3, horizontalMatrix), ConvolveOp.EDGE_NO_OP, null).filter(source, i2);
-
-        int w = source.getWidth();
-        int h = source.getHeight();
-
-        for (int x = 0; x < w; x++) {
+        // both Sobel operators and the magnitude in one pass over the pixels. A row is written back only after
+        // the next one has been computed, because that one still reads the original pixels
+        ProjectionProfile pixels = new ProjectionProfile(source);
+        int w = pixels.getWidth();
+        int h = pixels.getHeight();
+        int[] previous = ProjectionProfile.scratchRow(0, w);
+        int[] current = ProjectionProfile.scratchRow(1, w);
+
+        if (ParallelRows.isParallel((long) w * h)) {
+            // large images are filtered in parallel into a separate plane first
+            byte[] luma = pixels.filteredLuma(ProjectionProfile.Filter.SOBEL, RecognitionContext.get().getBytes(w * h));
             for (int y = 0; y < h; y++) {
-                float sum = 0.0f;
-                sum += Photo.getBrightness(i1, x, y);
-                sum += Photo.getBrightness(i2, x, y);
-                Photo.setBrightness(source, x, y, Math.min(1.0f, sum));
+                for (int x = 0; x < w; x++) {
+                    current[x] = luma[(y * w) + x] & 0xff;
+                }
+                pixels.writeRow(y, current);
+            }
+            if (source == this.image) {
+                this.invalidateLuma();
             }
+            return;
+        }
+        for (int y = 0; y < h; y++) {
+            pixels.filterRow(ProjectionProfile.Filter.SOBEL, y, current);
+            if (y > 0) {
+                pixels.writeRow(y - 1, previous);
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        if (h > 0) {
+            pixels.writeRow(h - 1, previous);
+        }
+        if (source == this.image) {
+            this.invalidateLuma();
         }
-
     }
 
 }
\ No newline at end of file
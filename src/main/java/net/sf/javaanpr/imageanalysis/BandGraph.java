@@ -87,16 +87,16 @@ public class BandGraph extends Graph {
     }
 
     public class PeakComparer implements Comparator<Object> {
-        Vector<Float> yValues = null;
+        float[] yValues = null;
 
-        public PeakComparer(Vector<Float> yValues) {
+        public PeakComparer(float[] yValues) {
             this.yValues = yValues;
         }
 
         private float getPeakValue(Object peak) {
             // return ((Peak)peak).center(); // left > right
 
-            return this.yValues.elementAt(((Peak) peak).getCenter()); // velkost
+            return this.yValues[((Peak) peak).getCenter()]; // velkost
                                                                       // peaku
         }
 
@@ -119,13 +119,13 @@ public class BandGraph extends Graph {
         for (int c = 0; c < count; c++) { // for count
             float maxValue = 0.0f;
             int maxIndex = 0;
-            for (int i = 0; i < this.yValues.size(); i++) { // zlava doprava
+            for (int i = 0; i < this.size; i++) { // zlava doprava
                 if (this.allowedInterval(outPeaks, i)) { // ak potencialny vrchol sa
                     // nachadza vo "volnom"
                     // intervale, ktory nespada
                     // pod ine vrcholy
-                    if (this.yValues.elementAt(i) >= maxValue) {
-                        maxValue = this.yValues.elementAt(i);
+                    if (this.yValues[i] >= maxValue) {
+                        maxValue = this.yValues[i];
                         maxIndex = i;
                     }
                 }
@@ -138,7 +138,7 @@ public class BandGraph extends Graph {
             leftIndex -= BandGraph.peakDiffMultiplicationConstant * diff; /* CONSTANT */
             rightIndex += BandGraph.peakDiffMultiplicationConstant * diff; /* CONSTANT */
 
-            outPeaks.add(new Peak(Math.max(0, leftIndex), maxIndex, Math.min(this.yValues.size() - 1, rightIndex)));
+            outPeaks.add(new Peak(Math.max(0, leftIndex), maxIndex, Math.min(this.size - 1, rightIndex)));
         } // end for count
 
         // treba filtrovat kandidatov, ktory nezodpovedaju proporciam znacky
@@ -165,7 +165,7 @@ public class BandGraph extends Graph {
         // int counter = 0;
         for (int i = peak; i >= 0; i--) {
             index = i;
-            if (this.yValues.elementAt(index) < peakFootConstantAbs) {
+            if (this.yValues[index] < peakFootConstantAbs) {
                 break;
             }
         }
@@ -175,12 +175,12 @@ public class BandGraph extends Graph {
     public int indexOfRightPeakAbs(int peak, double peakFootConstantAbs) {
         int index = peak;
         // int counter = 0;
-        for (int i = peak; i < this.yValues.size(); i++) {
+        for (int i = peak; i < this.size; i++) {
             index = i;
-            if (this.yValues.elementAt(index) < peakFootConstantAbs) {
+            if (this.yValues[index] < peakFootConstantAbs) {
                 break;
             }
         }
-        return Math.min(this.yValues.size(), index);
+        return Math.min(this.size, index);
     }
 }
\ No newline at end of file
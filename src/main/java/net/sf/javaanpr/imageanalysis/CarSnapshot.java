@@ -67,11 +67,19 @@ for more info about JavaANPR.
 
 package net.sf.javaanpr.imageanalysis;
 
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
 import java.awt.image.ConvolveOp;
 import java.awt.image.Kernel;
+import java.awt.image.WritableRaster;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Vector;
 
 import net.sf.javaanpr.configurator.Configurator;
@@ -86,15 +94,24 @@ public class CarSnapshot extends Photo {
     private static int carsnapshot_graphrankfilter = Configurator.getConfigurator().getIntProperty(
         "carsnapshot_graphrankfilter");
 
+    private static int pyramidLevel = Configurator.getConfigurator().getIntProperty("carsnapshot_pyramidlevel");
+    private static boolean lumaDecode = Configurator.getConfigurator().getIntProperty("carsnapshot_lumadecode") != 0;
+    private static int workingWidth = Configurator.getConfigurator().getIntProperty("carsnapshot_workingwidth");
+    private static int stripHeight = Configurator.getConfigurator().getIntProperty("carsnapshot_stripheight");
+    private static RegionOfInterest defaultRegionOfInterest = RegionOfInterest.getConfigured(null);
+
     static private int numberOfCandidates = Configurator.getConfigurator().getIntProperty("intelligence_numberOfBands");
     private CarSnapshotGraph graphHandle = null;
+    /* source pixels per pixel of the snapshot */
+    private double scale = 1;
+    /* bands are only searched for in this region, null for the whole snapshot */
+    private RegionOfInterest regionOfInterest = CarSnapshot.defaultRegionOfInterest;
 
     public static Graph.ProbabilityDistributor distributor = new Graph.ProbabilityDistributor(0, 0,
         CarSnapshot.distributor_margins, CarSnapshot.distributor_margins);
 
     public CarSnapshot(String filename) throws IOException {
-        super(Configurator.getConfigurator().getResourceAsStream(filename));
-
+        this(Configurator.getConfigurator().getResourceAsStream(filename));
     }
 
     public CarSnapshot(BufferedImage bi) {
@@ -102,7 +119,89 @@ public class CarSnapshot extends Photo {
     }
 
     public CarSnapshot(InputStream is) throws IOException {
-        super(is);
+        super((BufferedImage) null);
+        this.scale = this.loadImage(is, CarSnapshot.lumaDecode, CarSnapshot.workingWidth,
+            CarSnapshot.stripHeight > 0);
+    }
+
+    /**
+     * Creates a snapshot of a frame already decoded by the capture device, without copying its pixels. The buffer of
+     * the frame must not be modified while the snapshot is in use.
+     *
+     * @param frame the frame
+     */
+    public CarSnapshot(RawFrame frame) {
+        super(frame.toImage());
+    }
+
+    /**
+     * Decodes a snapshot from an encoded image (JPEG, PNG, ...) held in memory.
+     *
+     * @param data the encoded image, from its position to its limit
+     * @throws IOException if the image cannot be read
+     */
+    public CarSnapshot(ByteBuffer data) throws IOException {
+        super((BufferedImage) null);
+        this.scale = this.loadImage(data, CarSnapshot.lumaDecode, CarSnapshot.workingWidth,
+            CarSnapshot.stripHeight > 0);
+    }
+
+    /**
+     * Decodes a snapshot from an encoded image (JPEG, PNG, ...) held in memory.
+     *
+     * @param data the encoded image
+     * @throws IOException if the image cannot be read
+     */
+    public CarSnapshot(byte[] data) throws IOException {
+        this(ByteBuffer.wrap(data));
+    }
+
+    /**
+     * @return the factor the source image has been scaled down by when loading the snapshot, source pixels per pixel of
+     *         the snapshot, 1 for the native resolution
+     */
+    public double getScale() {
+        return this.scale;
+    }
+
+    /**
+     * Locates a band, plate or character of this snapshot in the source image, i.e. at the resolution before the
+     * snapshot has been scaled down.
+     *
+     * @param part a photo cut from this snapshot
+     * @return the bounds in the source image, or null if the photo does not share the pixels of this snapshot (for
+     *         example a skew corrected plate)
+     */
+    public Rectangle getSourceBounds(Photo part) {
+        WritableRaster raster = this.getBi().getRaster();
+        WritableRaster partRaster = part.getBi().getRaster();
+        if (partRaster.getDataBuffer() != raster.getDataBuffer()) {
+            return null;
+        }
+        // subimages share the data buffer, translated to their origin
+        int x = raster.getSampleModelTranslateX() - partRaster.getSampleModelTranslateX();
+        int y = raster.getSampleModelTranslateY() - partRaster.getSampleModelTranslateY();
+        double s = this.scale;
+        int left = (int) Math.floor(x * s);
+        int top = (int) Math.floor(y * s);
+        return new Rectangle(left, top, (int) Math.ceil((x + part.getWidth()) * s) - left,
+            (int) Math.ceil((y + part.getHeight()) * s) - top);
+    }
+
+    public RegionOfInterest getRegionOfInterest() {
+        return this.regionOfInterest;
+    }
+
+    /**
+     * Limits the search for bands to a region of the source image, typically the one configured for the camera the
+     * snapshot comes from, see {@link RegionOfInterest#getConfigured(String)}. Must be called before the bands are
+     * computed.
+     *
+     * @param regionOfInterest the region, or null to search the whole snapshot
+     */
+    public void setRegionOfInterest(RegionOfInterest regionOfInterest) {
+        this.regionOfInterest = regionOfInterest;
+        this.graphHandle = null;
     }
 
     public BufferedImage renderGraph() {
@@ -114,12 +213,24 @@ public class CarSnapshot extends Photo {
         if (this.graphHandle != null) {
             return this.graphHandle.peaks; // graf uz bol vypocitany
         }
+        if (CarSnapshot.pyramidLevel > 0) {
+            return this.computeGraphCoarseToFine(1 << CarSnapshot.pyramidLevel);
+        }
 
-        BufferedImage imageCopy = duplicateBufferedImage(this.image);
-        this.verticalEdgeBi(imageCopy);
-        Photo.thresholding(imageCopy); // strasne moc zere
-
-        this.graphHandle = this.histogram(imageCopy);
+        // vertical edges, thresholding and the projection in one pass, see verticalEdgeBi and Photo.thresholding
+        this.graphHandle = new CarSnapshotGraph(this);
+        if (this.regionOfInterest == null) {
+            ProjectionProfile profile = new ProjectionProfile(this.getBi(), CarSnapshot.stripHeight);
+            this.graphHandle.addPeaks(profile.rowSums(ProjectionProfile.Filter.SNAPSHOT_VERTICAL_EDGES, 36));
+        } else {
+            Rectangle bounds = this.regionOfInterest.getBounds(this.scale, this.getWidth(), this.getHeight());
+            if (bounds.isEmpty()) {
+                this.graphHandle.addPeaks(new float[this.getHeight()]);
+                this.graphHandle.peaks = new Vector<Graph.Peak>();
+                return this.graphHandle.peaks;
+            }
+            this.graphHandle.addPeaks(this.regionRowSums(bounds));
+        }
         this.graphHandle.rankFilter(CarSnapshot.carsnapshot_graphrankfilter);
         this.graphHandle.applyProbabilityDistributor(CarSnapshot.distributor);
 
@@ -127,6 +238,89 @@ public class CarSnapshot extends Photo {
         return this.graphHandle.peaks;
     }
 
+    /**
+     * Projects the rows of the region of interest only, every row within the parts of the region in that row. The edge
+     * filter is applied to the bounds of the region with enough context around them, so the sums inside of the region
+     * are the same as if the whole snapshot had been filtered.
+     *
+     * @param bounds the bounds of the region in this snapshot
+     * @return {@code height} sums, zero outside of the region
+     */
+    private float[] regionRowSums(Rectangle bounds) {
+        int left = Math.max(0, bounds.x - 1);
+        int top = Math.max(0, bounds.y - 2);
+        int right = Math.min(this.getWidth(), bounds.x + bounds.width + 1);
+        int bottom = Math.min(this.getHeight(), bounds.y + bounds.height + 2);
+        int[][] spans = this.regionOfInterest.getRowSpans(this.scale, this.getWidth(), top, bottom - top);
+        for (int i = 0; i < spans.length; i++) {
+            int y = top + i;
+            if ((y < bounds.y) || (y >= (bounds.y + bounds.height))) {
+                spans[i] = new int[0];
+                continue;
+            }
+            for (int j = 0; j < spans[i].length; j++) {
+                spans[i][j] = Math.max(0, Math.min(right, spans[i][j]) - left); // relative to the subimage
+            }
+        }
+        float[] sums = new ProjectionProfile(this.getBi().getSubimage(left, top, right - left, bottom - top),
+            CarSnapshot.stripHeight).rowSums(ProjectionProfile.Filter.SNAPSHOT_VERTICAL_EDGES, 36, spans);
+        float[] out = new float[this.getHeight()];
+        System.arraycopy(sums, 0, out, top, sums.length);
+        return out;
+    }
+
+    /**
+     * Searches for bands on the image downscaled by the given factor, then refines every band found on the full
+     * resolution rows around it only. The graph of this snapshot is the one of the downscaled image. Only the bounds of
+     * the region of interest are searched.
+     *
+     * @param factor the downscaling factor
+     * @return the bands, in full resolution coordinates
+     */
+    private Vector<Graph.Peak> computeGraphCoarseToFine(int factor) {
+        BufferedImage source = this.getBi();
+        int offset = 0;
+        if (this.regionOfInterest != null) {
+            Rectangle bounds = this.regionOfInterest.getBounds(this.scale, this.getWidth(), this.getHeight());
+            this.graphHandle = new CarSnapshotGraph(this);
+            this.graphHandle.peaks = new Vector<Graph.Peak>();
+            if ((bounds.width < factor) || (bounds.height < factor)) {
+                return this.graphHandle.peaks;
+            }
+            source = source.getSubimage(bounds.x, bounds.y, bounds.width, bounds.height);
+            offset = bounds.y;
+        }
+        BufferedImage coarse = Photo.boxDownscaleBi(source, factor);
+        int margins = CarSnapshot.distributor_margins / factor;
+        this.graphHandle = new CarSnapshotGraph(this);
+        this.graphHandle.addPeaks(new ProjectionProfile(coarse).rowSums(
+            ProjectionProfile.Filter.SNAPSHOT_VERTICAL_EDGES, 36));
+        this.graphHandle.rankFilter(Math.max(2, CarSnapshot.carsnapshot_graphrankfilter / factor));
+        this.graphHandle.applyProbabilityDistributor(new Graph.ProbabilityDistributor(0, 0, margins, margins));
+        Vector<Graph.Peak> coarsePeaks = this.graphHandle.findPeaks(CarSnapshot.numberOfCandidates);
+
+        Vector<Graph.Peak> peaks = new Vector<Graph.Peak>();
+        for (Graph.Peak p : coarsePeaks) {
+            // full resolution rows of the coarse band, with one coarse row of margin
+            int top = Math.max(0, (p.getLeft() - 1) * factor);
+            int bottom = Math.min(source.getHeight(), (p.getRight() + 2) * factor);
+            // the edge filter needs two more rows on both sides, or it would copy the outer rows unfiltered
+            int filterTop = Math.max(0, top - 2);
+            int filterBottom = Math.min(source.getHeight(), bottom + 2);
+            float[] sums = new ProjectionProfile(source.getSubimage(0, filterTop, source.getWidth(),
+                filterBottom - filterTop), CarSnapshot.stripHeight).rowSums(
+                ProjectionProfile.Filter.SNAPSHOT_VERTICAL_EDGES, 36);
+            CarSnapshotGraph fine = new CarSnapshotGraph(this);
+            fine.addPeaks(Arrays.copyOfRange(sums, top - filterTop, bottom - filterTop));
+            fine.rankFilter(CarSnapshot.carsnapshot_graphrankfilter);
+            Graph.Peak band = fine.findPeaks(1).elementAt(0);
+            top += offset;
+            peaks.add(this.graphHandle.new Peak(top + band.getLeft(), top + band.getCenter(), top + band.getRight()));
+        }
+        this.graphHandle.peaks = peaks;
+        return peaks;
+    }
+
     public Vector<Band> getBands() {
         Vector<Band> out = new Vector<Band>();
 
@@ -138,18 +332,64 @@ public class CarSnapshot extends Photo {
             // na suradnice vypocitane z imageCopy musime uplatnit inverznu
             // transformaciu
             Graph.Peak p = peaks.elementAt(i);
-            out.add(new Band(this.image.getSubimage(0, (p.getLeft()), this.image.getWidth(), (p.getDiff()))));
+            if (this.regionOfInterest == null) {
+                out.add(new Band(this.getBi().getSubimage(0, (p.getLeft()), this.getWidth(), (p.getDiff())),
+                    this.getRegion().getSubregion(0, p.getLeft(), this.getWidth(), p.getDiff())));
+                continue;
+            }
+            // only the parts of the band inside of the region, one band for every part
+            int[][] spans = this.regionOfInterest.getRowSpans(this.scale, this.getWidth(), p.getLeft(),
+                p.getDiff());
+            for (int[] part : CarSnapshot.columnParts(spans)) {
+                out.add(new Band(this.getBi().getSubimage(part[0], p.getLeft(), part[1] - part[0], p.getDiff()),
+                    this.getRegion().getSubregion(part[0], p.getLeft(), part[1] - part[0], p.getDiff())));
+            }
         }
         return out;
 
     }
 
+    /**
+     * Merges the spans of several rows into separate column ranges, spans of different rows that overlap in columns
+     * belong to the same range.
+     *
+     * @param spans the spans of every row, see {@link RegionOfInterest#getRowSpans(int, int, int, int)}
+     * @return the ranges from left to right, the first column and the column after the last one
+     */
+    static List<int[]> columnParts(int[][] spans) {
+        List<int[]> all = new ArrayList<int[]>();
+        for (int[] row : spans) {
+            for (int i = 0; i < row.length; i += 2) {
+                all.add(new int[] { row[i], row[i + 1] });
+            }
+        }
+        Collections.sort(all, new Comparator<int[]>() {
+            @Override
+            public int compare(int[] a, int[] b) {
+                return a[0] - b[0];
+            }
+        });
+        List<int[]> parts = new ArrayList<int[]>();
+        for (int[] span : all) {
+            int[] last = parts.isEmpty() ? null : parts.get(parts.size() - 1);
+            if ((last != null) && (span[0] < last[1])) {
+                last[1] = Math.max(last[1], span[1]);
+            } else {
+                parts.add(span);
+            }
+        }
+        return parts;
+    }
+
     public void verticalEdgeBi(BufferedImage image) {
         BufferedImage imageCopy = Photo.duplicateBufferedImage(image);
 
         float data[] = { -1, 0, 1, -1, 0, 1, -1, 0, 1, -1, 0, 1 };
 
         new ConvolveOp(new Kernel(3, 4, data), ConvolveOp.EDGE_NO_OP, null).filter(imageCopy, image);
+        if (image == this.image) {
+            this.invalidateLuma();
+        }
     }
 
     // public void verticalRankBi(BufferedImage image) {
@@ -164,10 +404,12 @@ public class CarSnapshot extends Photo {
 
     public CarSnapshotGraph histogram(BufferedImage bi) {
         CarSnapshotGraph graph = new CarSnapshotGraph(this);
+        byte[] luma = Photo.computeLuma(bi);
+        int w = bi.getWidth();
         for (int y = 0; y < bi.getHeight(); y++) {
             float counter = 0;
-            for (int x = 0; x < bi.getWidth(); x++) {
-                counter += Photo.getBrightness(bi, x, y);
+            for (int x = 0; x < w; x++) {
+                counter += Photo.BRIGHTNESS[luma[(y * w) + x] & 0xff];
             }
             graph.addPeak(counter);
         }
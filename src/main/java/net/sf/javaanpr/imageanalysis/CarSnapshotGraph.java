@@ -87,14 +87,14 @@ public class CarSnapshotGraph extends Graph {
     }
 
     public class PeakComparer implements Comparator<Object> {
-        Vector<Float> yValues = null;
+        float[] yValues = null;
 
-        public PeakComparer(Vector<Float> yValues) {
+        public PeakComparer(float[] yValues) {
             this.yValues = yValues;
         }
 
         private float getPeakValue(Object peak) {
-            return this.yValues.elementAt(((Peak) peak).getCenter()); // podla
+            return this.yValues[((Peak) peak).getCenter()]; // podla
                                                                       // intenzity
             // return ((Peak)peak).getDiff();
         }
@@ -119,13 +119,13 @@ public class CarSnapshotGraph extends Graph {
         for (int c = 0; c < count; c++) { // for count
             float maxValue = 0.0f;
             int maxIndex = 0;
-            for (int i = 0; i < this.yValues.size(); i++) { // zlava doprava
+            for (int i = 0; i < this.size; i++) { // zlava doprava
                 if (this.allowedInterval(outPeaks, i)) { // ak potencialny vrchol sa
                     // nachadza vo "volnom"
                     // intervale, ktory nespada
                     // pod ine vrcholy
-                    if (this.yValues.elementAt(i) >= maxValue) {
-                        maxValue = this.yValues.elementAt(i);
+                    if (this.yValues[i] >= maxValue) {
+                        maxValue = this.yValues[i];
                         maxIndex = i;
                     }
                 }
@@ -137,7 +137,7 @@ public class CarSnapshotGraph extends Graph {
             leftIndex -= CarSnapshotGraph.peakDiffMultiplicationConstant * diff; /* CONSTANT */
             rightIndex += CarSnapshotGraph.peakDiffMultiplicationConstant * diff; /* CONSTANT */
 
-            outPeaks.add(new Peak(Math.max(0, leftIndex), maxIndex, Math.min(this.yValues.size() - 1, rightIndex)));
+            outPeaks.add(new Peak(Math.max(0, leftIndex), maxIndex, Math.min(this.size - 1, rightIndex)));
         } // end for count
 
         Collections.sort(outPeaks, new PeakComparer(this.yValues));
@@ -95,15 +95,21 @@ public class Char extends Photo {
     public float statisticAverageHue;
     public float statisticAverageSaturation;
 
-    public BufferedImage thresholdedImage;
+    /** thresholded pixels of the character, usually a view into the thresholded plate */
+    public ImageRegion thresholdedRegion;
 
-    public Char(BufferedImage bi, BufferedImage thresholdedImage, PositionInPlate positionInPlate) {
+    public Char(BufferedImage bi, ImageRegion thresholdedRegion, PositionInPlate positionInPlate) {
         super(bi);
-        this.thresholdedImage = thresholdedImage;
+        this.thresholdedRegion = thresholdedRegion;
         this.positionInPlate = positionInPlate;
         this.init();
     }
 
+    public Char(BufferedImage bi, BufferedImage thresholdedImage, PositionInPlate positionInPlate) {
+        this(bi, new ImageRegion(Photo.computeLuma(thresholdedImage), thresholdedImage.getWidth(),
+            thresholdedImage.getHeight()), positionInPlate);
+    }
+
     public Char(BufferedImage bi) {
         this(bi, bi, null);
         this.init();
@@ -123,9 +129,9 @@ public class Char extends Photo {
         // 23.12.2006 2:33 AM
 
         // nasledovne 4 riadky pridane 23.12.2006 2:33 AM
-        BufferedImage origin = Photo.duplicateBufferedImage(this.image);
+        BufferedImage origin = this.image; // thresholding does not modify the image
         this.adaptiveThresholding(); // s ucinnostou nad this.image
-        this.thresholdedImage = this.image;
+        this.thresholdedRegion = this.getRegion();
         this.image = origin;
 
         this.init();
@@ -145,9 +151,9 @@ public class Char extends Photo {
         // 23.12.2006 2:33 AM
 
         // nasledovne 4 riadky pridane 23.12.2006 2:33 AM
-        BufferedImage origin = Photo.duplicateBufferedImage(this.image);
+        BufferedImage origin = this.image; // thresholding does not modify the image
         this.adaptiveThresholding(); // s ucinnostou nad this.image
-        this.thresholdedImage = this.image;
+        this.thresholdedRegion = this.getRegion();
         this.image = origin;
 
         this.init();
@@ -155,9 +161,21 @@ public class Char extends Photo {
 
     @Override
     public Char clone() {
-        super.clone();
-        return new Char(duplicateBufferedImage(this.image), duplicateBufferedImage(this.thresholdedImage),
-            this.positionInPlate);
+        ImageRegion thresholded = this.thresholdedRegion;
+        return new Char(duplicateBufferedImage(this.getBi()), new ImageRegion(thresholded.toArray(),
+            thresholded.getWidth(), thresholded.getHeight()), this.positionInPlate);
+    }
+
+    /**
+     * Renders the thresholded pixels into a new image, the character used to keep them as a public
+     * {@code BufferedImage thresholdedImage} field.
+     *
+     * @return a new TYPE_INT_RGB image, changing it does not change the character
+     * @deprecated use {@link #thresholdedRegion}
+     */
+    @Deprecated
+    public BufferedImage getThresholdedImage() {
+        return Photo.lumaToBufferedImage(this.thresholdedRegion);
     }
 
     private void init() {
@@ -171,8 +189,9 @@ public class Char extends Photo {
             return;
         }
 
-        BufferedImage colorImage = duplicateBufferedImage(this.getBi());
-        this.image = this.thresholdedImage;
+        // the color pixels are only read, so no copy is needed
+        BufferedImage colorImage = this.getBi();
+        this.setRegion(this.thresholdedRegion);
 
         /*
          * NEBUDEME POUZIVAT // tu treba osetrit pripady, ked je prvy alebo posledny riadok cely cierny (zmenime na biely)
@@ -183,7 +202,7 @@ public class Char extends Photo {
 
         PixelMap.Piece bestPiece = pixelMap.getBestPiece();
 
-        colorImage = this.getBestPieceInFullColor(colorImage, bestPiece);
+        colorImage = Photo.colorPixels(this.getBestPieceInFullColor(colorImage, bestPiece));
 
         // vypocet statistik
         this.computeStatisticBrightness(colorImage);
@@ -234,9 +253,10 @@ public class Char extends Photo {
         float sum = 0;
         int w = bi.getWidth();
         int h = bi.getHeight();
+        byte[] luma = Photo.computeLuma(bi);
         for (int x = 0; x < w; x++) {
             for (int y = 0; y < h; y++) {
-                sum += Math.abs(this.statisticAverageBrightness - Photo.getBrightness(bi, x, y));
+                sum += Math.abs(this.statisticAverageBrightness - Photo.BRIGHTNESS[luma[(y * w) + x] & 0xff]);
             }
         }
         this.statisticContrast = sum / (w * h);
@@ -249,9 +269,10 @@ public class Char extends Photo {
 
         int w = bi.getWidth();
         int h = bi.getHeight();
+        byte[] luma = Photo.computeLuma(bi);
         for (int x = 0; x < w; x++) {
             for (int y = 0; y < h; y++) {
-                float value = Photo.getBrightness(bi, x, y);
+                float value = Photo.BRIGHTNESS[luma[(y * w) + x] & 0xff];
                 sum += value;
                 min = Math.min(min, value);
                 max = Math.max(max, value);
@@ -293,11 +314,11 @@ public class Char extends Photo {
     // //////
 
     public Vector<Double> extractEdgeFeatures() {
-        int w = this.image.getWidth();
-        int h = this.image.getHeight();
+        int w = this.getWidth();
+        int h = this.getHeight();
         double featureMatch;
 
-        float[][] array = this.bufferedImageToArrayWithBounds(this.image, w, h);
+        float[][] array = Photo.lumaToArrayWithBounds(this.getLuma(), w, w, h);
         w += 2; // pridame okraje
         h += 2;
 
@@ -339,9 +360,12 @@ public class Char extends Photo {
 
     public Vector<Double> extractMapFeatures() {
         Vector<Double> vectorInput = new Vector<>();
-        for (int y = 0; y < this.getHeight(); y++) {
-            for (int x = 0; x < this.getWidth(); x++) {
-                vectorInput.add((double) this.getBrightness(x, y));
+        int w = this.getWidth();
+        int h = this.getHeight();
+        byte[] luma = this.getLuma();
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                vectorInput.add((double) Photo.BRIGHTNESS[luma[(y * w) + x] & 0xff]);
             }
         }
         return vectorInput;
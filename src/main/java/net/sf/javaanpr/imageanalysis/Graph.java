@@ -71,6 +71,7 @@ import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
+import java.util.Arrays;
 //import java.util.Collections;
 //import java.util.Comparator;
 import java.util.Vector;
@@ -133,26 +134,46 @@ public class Graph {
             this.rightMargin = Math.max(1, rightMargin);
         }
 
+        private volatile float[] weights = null; // weights for the last graph length
+
         private float distributionFunction(float value, float positionPercentage) {
             return value * (1 - (this.power * Math.abs(positionPercentage - this.center)));
         }
 
-        public Vector<Float> distribute(Vector<Float> peaks) {
-            Vector<Float> distributedPeaks = new Vector<Float>();
-            for (int i = 0; i < peaks.size(); i++) {
-                if ((i < this.leftMargin) || (i > (peaks.size() - this.rightMargin))) {
-                    distributedPeaks.add(0f);
-                } else {
-                    distributedPeaks.add(this.distributionFunction(peaks.elementAt(i), ((float) i / peaks.size())));
+        /**
+         * Returns the weights of the distribution for a graph of the given length, computing them only when the
+         * length changes. Distributors are shared between threads, so the cached array is replaced, never modified.
+         */
+        private float[] getWeights(int length) {
+            float[] weights = this.weights;
+            if ((weights == null) || (weights.length != length)) {
+                weights = new float[length];
+                for (int i = 0; i < length; i++) {
+                    weights[i] = this.distributionFunction(1, ((float) i / length));
                 }
+                this.weights = weights;
             }
+            return weights;
+        }
 
-            return distributedPeaks;
+        /**
+         * Distributes the first {@code length} values of the array in place.
+         */
+        public void distribute(float[] peaks, int length) {
+            float[] weights = this.getWeights(length);
+            for (int i = 0; i < length; i++) {
+                if ((i < this.leftMargin) || (i > (length - this.rightMargin))) {
+                    peaks[i] = 0f;
+                } else {
+                    peaks[i] *= weights[i];
+                }
+            }
         }
     }
 
     public Vector<Peak> peaks = null;
-    public Vector<Float> yValues = new Vector<Float>();
+    float[] yValues = new float[16];
+    int size = 0;
     // statistical informations
     private boolean actualAverageValue = false; // su hodnoty aktualne ?
     private boolean actualMaximumValue = false; // su hodnoty aktualne ?
@@ -178,20 +199,60 @@ public class Graph {
         return true;
     }
 
+    private void ensureCapacity(int capacity) {
+        if (capacity > this.yValues.length) {
+            this.yValues = Arrays.copyOf(this.yValues, Math.max(capacity, this.yValues.length * 2));
+        }
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Returns a copy of the values, the graph used to expose them as a public {@code Vector<Float> yValues} field.
+     *
+     * @return the values, changing them does not change the graph
+     * @deprecated use {@link #size()} and {@link #getValue(int)}
+     */
+    @Deprecated
+    public Vector<Float> getYValues() {
+        Vector<Float> values = new Vector<Float>(this.size);
+        for (int i = 0; i < this.size; i++) {
+            values.add(this.yValues[i]);
+        }
+        return values;
+    }
+
+    public float getValue(int index) {
+        if (index >= this.size) {
+            throw new ArrayIndexOutOfBoundsException(index);
+        }
+        return this.yValues[index];
+    }
+
     public void addPeak(float value) {
-        this.yValues.add(value);
+        this.ensureCapacity(this.size + 1);
+        this.yValues[this.size++] = value;
+        this.deActualizeFlags();
+    }
+
+    public void addPeaks(float[] values) {
+        this.ensureCapacity(this.size + values.length);
+        System.arraycopy(values, 0, this.yValues, this.size, values.length);
+        this.size += values.length;
         this.deActualizeFlags();
     }
 
     public void applyProbabilityDistributor(Graph.ProbabilityDistributor probability) {
-        this.yValues = probability.distribute(this.yValues);
+        probability.distribute(this.yValues, this.size);
         this.deActualizeFlags();
     }
 
     public void negate() {
         float max = this.getMaxValue();
-        for (int i = 0; i < this.yValues.size(); i++) {
-            this.yValues.setElementAt(max - this.yValues.elementAt(i), i);
+        for (int i = 0; i < this.size; i++) {
+            this.yValues[i] = max - this.yValues[i];
         }
 
         this.deActualizeFlags();
@@ -238,7 +299,7 @@ public class Graph {
 
     float getAverageValue() {
         if (!this.actualAverageValue) {
-            this.averageValue = this.getAverageValue(0, this.yValues.size());
+            this.averageValue = this.getAverageValue(0, this.size);
             this.actualAverageValue = true;
         }
         return this.averageValue;
@@ -247,9 +308,9 @@ public class Graph {
     float getAverageValue(int a, int b) {
         float sum = 0.0f;
         for (int i = a; i < b; i++) {
-            sum += this.yValues.elementAt(i).doubleValue();
+            sum += (double) this.yValues[i];
         }
-        return sum / this.yValues.size();
+        return sum / this.size;
     }
 
     // float getMaxValue() {
@@ -265,7 +326,7 @@ public class Graph {
 
     float getMaxValue() {
         if (!this.actualMaximumValue) {
-            this.maximumValue = this.getMaxValue(0, this.yValues.size());
+            this.maximumValue = this.getMaxValue(0, this.size);
             this.actualMaximumValue = true;
         }
         return this.maximumValue;
@@ -274,14 +335,14 @@ public class Graph {
     float getMaxValue(int a, int b) {
         float maxValue = 0.0f;
         for (int i = a; i < b; i++) {
-            maxValue = Math.max(maxValue, this.yValues.elementAt(i));
+            maxValue = Math.max(maxValue, this.yValues[i]);
         }
         return maxValue;
     }
 
     float getMaxValue(float a, float b) {
-        int ia = (int) (a * this.yValues.size());
-        int ib = (int) (b * this.yValues.size());
+        int ia = (int) (a * this.size);
+        int ib = (int) (b * this.size);
         return this.getMaxValue(ia, ib);
     }
 
@@ -289,8 +350,8 @@ public class Graph {
         float maxValue = 0.0f;
         int maxIndex = a;
         for (int i = a; i < b; i++) {
-            if (this.yValues.elementAt(i) >= maxValue) {
-                maxValue = this.yValues.elementAt(i);
+            if (this.yValues[i] >= maxValue) {
+                maxValue = this.yValues[i];
                 maxIndex = i;
             }
         }
@@ -311,7 +372,7 @@ public class Graph {
 
     float getMinValue() {
         if (!this.actualMinimumValue) {
-            this.minimumValue = this.getMinValue(0, this.yValues.size());
+            this.minimumValue = this.getMinValue(0, this.size);
             this.actualMinimumValue = true;
         }
         return this.minimumValue;
@@ -320,14 +381,14 @@ public class Graph {
     float getMinValue(int a, int b) {
         float minValue = Float.POSITIVE_INFINITY;
         for (int i = a; i < b; i++) {
-            minValue = Math.min(minValue, this.yValues.elementAt(i));
+            minValue = Math.min(minValue, this.yValues[i]);
         }
         return minValue;
     }
 
     float getMinValue(float a, float b) {
-        int ia = (int) (a * this.yValues.size());
-        int ib = (int) (b * this.yValues.size());
+        int ia = (int) (a * this.size);
+        int ib = (int) (b * this.size);
         return this.getMinValue(ia, ib);
     }
 
@@ -335,8 +396,8 @@ public class Graph {
         float minValue = Float.POSITIVE_INFINITY;
         int minIndex = b;
         for (int i = a; i < b; i++) {
-            if (this.yValues.elementAt(i) <= minValue) {
-                minValue = this.yValues.elementAt(i);
+            if (this.yValues[i] <= minValue) {
+                minValue = this.yValues[i];
                 minIndex = i;
             }
         }
@@ -367,11 +428,11 @@ public class Graph {
 
         graphicContent.setColor(Color.GREEN);
 
-        for (int i = 0; i < this.yValues.size(); i++) {
+        for (int i = 0; i < this.size; i++) {
             x0 = x;
             y0 = y;
-            x = (int) (((float) i / this.yValues.size()) * width);
-            y = (int) ((1 - (this.yValues.elementAt(i) / this.getMaxValue())) * height);
+            x = (int) (((float) i / this.size) * width);
+            y = (int) ((1 - (this.yValues[i] / this.getMaxValue())) * height);
             graphicContent.drawLine(x0, y0, x, y);
         }
 
@@ -379,7 +440,7 @@ public class Graph {
                                   // tie
             graphicContent.setColor(Color.RED);
             int i = 0;
-            double multConst = (double) width / this.yValues.size();
+            double multConst = (double) width / this.size;
             for (Peak p : this.peaks) {
                 graphicContent.drawLine((int) (p.left * multConst), 0, (int) (p.center * multConst), 30);
                 graphicContent.drawLine((int) (p.center * multConst), 30, (int) (p.right * multConst), 0);
@@ -430,11 +491,11 @@ public class Graph {
 
         graphicContent.setColor(Color.GREEN);
 
-        for (int i = 0; i < this.yValues.size(); i++) {
+        for (int i = 0; i < this.size; i++) {
             x0 = x;
             y0 = y;
-            y = (int) (((float) i / this.yValues.size()) * height);
-            x = (int) ((this.yValues.elementAt(i) / this.getMaxValue()) * width);
+            y = (int) (((float) i / this.size) * height);
+            x = (int) ((this.yValues[i] / this.getMaxValue()) * width);
             graphicContent.drawLine(x0, y0, x, y);
         }
 
@@ -442,7 +503,7 @@ public class Graph {
                                   // tie
             graphicContent.setColor(Color.RED);
             int i = 0;
-            double multConst = (double) height / this.yValues.size();
+            double multConst = (double) height / this.size;
             for (Peak p : this.peaks) {
                 graphicContent.drawLine(width, (int) (p.left * multConst), width - 30, (int) (p.center * multConst));
                 graphicContent.drawLine(width - 30, (int) (p.center * multConst), width, (int) (p.right * multConst));
@@ -475,26 +536,34 @@ public class Graph {
         return axis;
     }
 
+    /**
+     * Replaces every value by the average of the window of {@code size} values around it. The window sum is carried
+     * along the graph in double precision, so the filter runs in linear time regardless of the window size.
+     */
     public void rankFilter(int size) {
         int halfSize = size / 2;
-        // Vector<Float> clone = (Vector<Float>)this.yValues.clone();
-        Vector<Float> clone = new Vector<Float>(this.yValues);
-
-        for (int i = halfSize; i < (this.yValues.size() - halfSize); i++) {
-            float sum = 0;
-            for (int ii = i - halfSize; ii < (i + halfSize); ii++) {
-                sum += clone.elementAt(ii);
-            }
-            this.yValues.setElementAt(sum / size, i);
+        if (this.size < (2 * halfSize)) {
+            return;
         }
+        float[] clone = RecognitionContext.get().getFloats(this.size);
+        System.arraycopy(this.yValues, 0, clone, 0, this.size);
 
+        double sum = 0;
+        for (int ii = 0; ii < (2 * halfSize); ii++) {
+            sum += clone[ii];
+        }
+        for (int i = halfSize; i < (this.size - halfSize); i++) {
+            this.yValues[i] = (float) (sum / size);
+            sum += (double) clone[i + halfSize] - clone[i - halfSize];
+        }
+        this.deActualizeFlags();
     }
 
     public int indexOfLeftPeakRel(int peak, double peakFootConstantRel) {
         int index = peak;
         for (int i = peak; i >= 0; i--) {
             index = i;
-            if (this.yValues.elementAt(index) < (peakFootConstantRel * this.yValues.elementAt(peak))) {
+            if (this.yValues[index] < (peakFootConstantRel * this.yValues[peak])) {
                 break;
             }
         }
@@ -503,13 +572,13 @@ public class Graph {
 
     public int indexOfRightPeakRel(int peak, double peakFootConstantRel) {
         int index = peak;
-        for (int i = peak; i < this.yValues.size(); i++) {
+        for (int i = peak; i < this.size; i++) {
             index = i;
-            if (this.yValues.elementAt(index) < (peakFootConstantRel * this.yValues.elementAt(peak))) {
+            if (this.yValues[index] < (peakFootConstantRel * this.yValues[peak])) {
                 break;
             }
         }
-        return Math.min(this.yValues.size(), index);
+        return Math.min(this.size, index);
     }
 
     public float averagePeakDiff(Vector<Peak> peaks) { // not used
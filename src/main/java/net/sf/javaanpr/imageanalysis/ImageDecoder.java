@@ -0,0 +1,493 @@
+/*
+------------------------------------------------------------------------
+JavaANPR - Automatic Number Plate Recognition System for Java
+------------------------------------------------------------------------
+
+This file is a part of the JavaANPR, licensed under the terms of the
+Educational Community License
+
+Copyright (c) 2006-2007 Ondrej Martinsky. All rights reserved
+
+This Original Work, including software, source code, documents, or
+other related items, is being provided by the copyright holder(s)
+subject to the terms of the Educational Community License. By
+obtaining, using and/or copying this Original Work, you agree that you
+have read, understand, and will comply with the following terms and
+conditions of the Educational Community License:
+
+Permission to use, copy, modify, merge, publish, distribute, and
+sublicense this Original Work and its documentation, with or without
+modification, for any purpose, and without fee or royalty to the
+copyright holder(s) is hereby granted, provided that you include the
+following on ALL copies of the Original Work or portions thereof,
+including modifications or derivatives, that you make:
+
+# The full text of the Educational Community License in a location
+viewable to users of the redistributed or derivative work.
+
+# Any pre-existing intellectual property disclaimers, notices, or terms
+and conditions.
+
+# Notice of any changes or modifications to the Original Work,
+including the date the changes were made.
+
+# Any modifications of the Original Work must be distributed in such a
+manner as to avoid any confusion with the Original Work of the
+copyright holders.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+The name and trademarks of copyright holder(s) may NOT be used in
+advertising or publicity pertaining to the Original or Derivative Works
+without specific, written prior permission. Title to copyright in the
+Original Work and any associated documentation will at all times remain
+with the copyright holders.
+
+If you want to alter upon this work, you MUST attribute it in
+a) all source files
+b) on every place, where is the copyright of derivated work
+exactly by the following label :
+
+---- label begin ----
+This work is a derivate of the JavaANPR. JavaANPR is a intellectual
+property of Ondrej Martinsky. Please visit http://javaanpr.sourceforge.net
+for more info about JavaANPR.
+----  label end  ----
+
+------------------------------------------------------------------------
+                                         http://javaanpr.sourceforge.net
+------------------------------------------------------------------------
+ */
+
+package net.sf.javaanpr.imageanalysis;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Raster;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataFormatImpl;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+/**
+ * Per-thread image decoder for the ingest of frames.
+ * <p>
+ * {@link ImageIO#read(InputStream)} looks the service providers up, creates an image reader and a (by default file
+ * cached) image input stream for every image. The decoder instead keeps the readers it has created, one per format, and
+ * reuses them for every frame decoded on the same thread. JPEG and PNG files are recognized by their signature, other
+ * formats are looked up once and kept as well. Encoded frames already in memory are read straight from a
+ * {@link ByteBuffer}, and the intermediate image the reader decodes into is reused while the frames keep their size.
+ * <p>
+ * The decoded images are new {@code TYPE_INT_RGB} images owned by the caller, unless the caller asks for the compact
+ * layout of the reader (usually {@code TYPE_3BYTE_BGR} for JPEG files), which saves a copy of the pixels and a quarter
+ * of their memory.
+ */
+public class ImageDecoder {
+    private static final ThreadLocal<ImageDecoder> decoders = new ThreadLocal<ImageDecoder>() {
+        @Override
+        protected ImageDecoder initialValue() {
+            return new ImageDecoder();
+        }
+    };
+
+    private static final byte[] JPEG_SIGNATURE = { (byte) 0xff, (byte) 0xd8 };
+    private static final byte[] PNG_SIGNATURE = { (byte) 0x89, 'P', 'N', 'G' };
+
+    /* readers by format name */
+    private final Map<String, ImageReader> readers = new HashMap<String, ImageReader>();
+    /* image the last frame has been decoded into, reused as the destination of the next one */
+    private BufferedImage destination = null;
+    private int subsampling = 1;
+    private double scale = 1;
+
+    private ImageDecoder() {
+    }
+
+    /**
+     * @return the decoder of the current thread
+     */
+    public static ImageDecoder get() {
+        return ImageDecoder.decoders.get();
+    }
+
+    /**
+     * @return the factor the reader has subsampled the last decoded image by, 1 if it has been read at its native
+     *         resolution
+     */
+    public int getSubsampling() {
+        return this.subsampling;
+    }
+
+    /**
+     * @return the factor the last decoded image has been scaled down by in total, source pixels per pixel of the
+     *         image, 1 if it has been decoded at its native resolution
+     */
+    public double getScale() {
+        return this.scale;
+    }
+
+    /**
+     * Decodes an image from a stream, see {@link #decode(ImageInputStream, boolean, int)}.
+     *
+     * @param is the stream, it is not closed
+     * @param lumaOnly see {@link Photo#loadLuma(InputStream)}
+     * @param maxWidth the largest width of the decoded image, 0 for the native resolution
+     * @return the image
+     * @throws IOException if the image cannot be read
+     */
+    public BufferedImage decode(InputStream is, boolean lumaOnly, int maxWidth) throws IOException {
+        return this.decode(is, lumaOnly, maxWidth, false);
+    }
+
+    /**
+     * Decodes an image from a stream, see {@link #decode(ImageInputStream, boolean, int, boolean)}.
+     *
+     * @param is the stream, it is not closed
+     * @param lumaOnly see {@link Photo#loadLuma(InputStream)}
+     * @param maxWidth the largest width of the decoded image, 0 for the native resolution
+     * @param compact if true, the image is returned in the layout of the reader
+     * @return the image
+     * @throws IOException if the image cannot be read
+     */
+    public BufferedImage decode(InputStream is, boolean lumaOnly, int maxWidth, boolean compact) throws IOException {
+        ImageInputStream iis = new MemoryCacheImageInputStream(is);
+        try {
+            return this.decode(iis, lumaOnly, maxWidth, compact);
+        } finally {
+            iis.close();
+        }
+    }
+
+    /**
+     * Decodes an encoded image held in memory, from the position to the limit of the buffer. The buffer is read without
+     * being copied and its position is not changed.
+     *
+     * @param data the encoded image
+     * @param lumaOnly see {@link Photo#loadLuma(InputStream)}
+     * @param maxWidth the largest width of the decoded image, 0 for the native resolution
+     * @return the image
+     * @throws IOException if the image cannot be read
+     */
+    public BufferedImage decode(ByteBuffer data, boolean lumaOnly, int maxWidth) throws IOException {
+        return this.decode(data, lumaOnly, maxWidth, false);
+    }
+
+    /**
+     * Decodes an encoded image held in memory, see {@link #decode(ByteBuffer, boolean, int)}.
+     *
+     * @param data the encoded image
+     * @param lumaOnly see {@link Photo#loadLuma(InputStream)}
+     * @param maxWidth the largest width of the decoded image, 0 for the native resolution
+     * @param compact if true, the image is returned in the layout of the reader
+     * @return the image
+     * @throws IOException if the image cannot be read
+     */
+    public BufferedImage decode(ByteBuffer data, boolean lumaOnly, int maxWidth, boolean compact) throws IOException {
+        ImageInputStream iis = new ByteBufferImageInputStream(data);
+        try {
+            return this.decode(iis, lumaOnly, maxWidth, compact);
+        } finally {
+            iis.close();
+        }
+    }
+
+    /**
+     * Decodes the first image of a stream. Images wider than {@code maxWidth} are subsampled by the reader, which keeps
+     * every n-th pixel of every n-th row only, see {@link #getSubsampling()}. The factor is rounded down, so the
+     * subsampled image is never narrower than {@code maxWidth}, and it is then resized down to {@code maxWidth} by
+     * averaging, see {@link #getScale()}.
+     *
+     * @param iis the stream, it is not closed
+     * @param lumaOnly see {@link Photo#loadLuma(InputStream)}
+     * @param maxWidth the largest width of the decoded image, 0 for the native resolution
+     * @return the image
+     * @throws IOException if the image cannot be read
+     */
+    public BufferedImage decode(ImageInputStream iis, boolean lumaOnly, int maxWidth) throws IOException {
+        return this.decode(iis, lumaOnly, maxWidth, false);
+    }
+
+    /**
+     * Decodes the first image of a stream, see {@link #decode(ImageInputStream, boolean, int)}. A compact image is the
+     * one the reader has decoded into, it is neither copied nor reused for the next image, unless it has to be resized.
+     *
+     * @param iis the stream, it is not closed
+     * @param lumaOnly see {@link Photo#loadLuma(InputStream)}
+     * @param maxWidth the largest width of the decoded image, 0 for the native resolution
+     * @param compact if true, the image is returned in the layout of the reader
+     * @return the image
+     * @throws IOException if the image cannot be read
+     */
+    public BufferedImage decode(ImageInputStream iis, boolean lumaOnly, int maxWidth, boolean compact)
+        throws IOException {
+        ImageReader reader = this.getReader(iis);
+        try {
+            reader.setInput(iis, true, !lumaOnly);
+            ImageReadParam param = reader.getDefaultReadParam();
+            int width = reader.getWidth(0);
+            int height = reader.getHeight(0);
+            // the size of the result, 0 if the image is not resized after subsampling
+            int targetWidth = 0;
+            int targetHeight = 0;
+            this.subsampling = 1;
+            this.scale = 1;
+            if ((maxWidth > 0) && (width > maxWidth)) {
+                // rounded down, a factor rounded up could leave only a little more than half of maxWidth
+                this.subsampling = width / maxWidth;
+                param.setSourceSubsampling(this.subsampling, this.subsampling, 0, 0);
+                int s = this.subsampling;
+                if (((width + s) - 1) / s > maxWidth) {
+                    targetWidth = maxWidth;
+                    targetHeight = Math.max(1, (int) Math.round(((double) height * maxWidth) / width));
+                    this.scale = (double) width / maxWidth;
+                } else {
+                    this.scale = s;
+                }
+            }
+            if (lumaOnly && reader.canReadRaster() && ImageDecoder.isYCbCr(reader.getImageMetadata(0))) {
+                return ImageDecoder.lumaImage(reader.readRaster(0, param), targetWidth, targetHeight);
+            }
+
+            if (compact) {
+                BufferedImage decoded = reader.read(0, param);
+                if (decoded == null) {
+                    throw new IOException("Unsupported image format");
+                }
+                return (targetWidth == 0) ? decoded : ImageDecoder.averageResize(decoded, targetWidth, targetHeight);
+            }
+            int s = this.subsampling;
+            if (this.reusableDestination(reader, ((width + s) - 1) / s, ((height + s) - 1) / s)) {
+                param.setDestination(this.destination);
+            }
+            BufferedImage decoded = reader.read(0, param);
+            this.destination = decoded;
+            if (targetWidth > 0) {
+                if (decoded == null) {
+                    throw new IOException("Unsupported image format");
+                }
+                return ImageDecoder.averageResize(decoded, targetWidth, targetHeight);
+            }
+            return ImageDecoder.toIntRgb(decoded);
+        } finally {
+            reader.setInput(null);
+        }
+    }
+
+    private boolean reusableDestination(ImageReader reader, int width, int height) throws IOException {
+        if ((this.destination == null) || (this.destination.getWidth() != width)
+            || (this.destination.getHeight() != height)) {
+            return false;
+        }
+        ImageTypeSpecifier type = reader.getRawImageType(0);
+        return (type != null) && (type.getBufferedImageType() == this.destination.getType())
+            && (type.getBufferedImageType() != BufferedImage.TYPE_CUSTOM);
+    }
+
+    private ImageReader getReader(ImageInputStream iis) throws IOException {
+        String format = null;
+        if (ImageDecoder.startsWith(iis, ImageDecoder.JPEG_SIGNATURE)) {
+            format = "jpeg";
+        } else if (ImageDecoder.startsWith(iis, ImageDecoder.PNG_SIGNATURE)) {
+            format = "png";
+        }
+        ImageReader reader = (format == null) ? null : this.readers.get(format);
+        if (reader != null) {
+            return reader;
+        }
+
+        Iterator<ImageReader> found = ImageIO.getImageReaders(iis);
+        if (!found.hasNext()) {
+            throw new IOException("Unsupported image format");
+        }
+        reader = found.next();
+        if (format == null) {
+            format = reader.getFormatName().toLowerCase();
+            if (this.readers.containsKey(format)) {
+                reader.dispose();
+                return this.readers.get(format);
+            }
+        }
+        this.readers.put(format, reader);
+        return reader;
+    }
+
+    private static boolean startsWith(ImageInputStream iis, byte[] signature) throws IOException {
+        byte[] head = new byte[signature.length];
+        iis.mark();
+        try {
+            int read = 0;
+            while (read < head.length) {
+                int n = iis.read(head, read, head.length - read);
+                if (n < 0) {
+                    return false;
+                }
+                read += n;
+            }
+        } finally {
+            iis.reset();
+        }
+        for (int i = 0; i < signature.length; i++) {
+            if (head[i] != signature[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isYCbCr(IIOMetadata metadata) {
+        if ((metadata == null) || !metadata.isStandardMetadataFormatSupported()) {
+            return false;
+        }
+        IIOMetadataNode root = (IIOMetadataNode) metadata.getAsTree(
+            IIOMetadataFormatImpl.standardMetadataFormatName);
+        NodeList colorSpace = root.getElementsByTagName("ColorSpaceType");
+        return (colorSpace.getLength() > 0) && "YCbCr".equals(((Element) colorSpace.item(0)).getAttribute("name"));
+    }
+
+    /*
+     * gray image backed by the luma band of a YCbCr raster, see RawFrame: the raster is repacked into a Y plane and an
+     * interleaved chroma plane subsampled 2x2, the way JPEG files usually store it, 1.5 bytes per pixel in total. The
+     * bands are resized to targetWidth x targetHeight first, unless targetWidth is 0
+     */
+    private static BufferedImage lumaImage(Raster ycbcr, int targetWidth, int targetHeight) throws IOException {
+        if (ycbcr.getNumBands() != 3) {
+            throw new IOException("Unexpected number of YCbCr bands: " + ycbcr.getNumBands());
+        }
+        int w = ycbcr.getWidth();
+        int h = ycbcr.getHeight();
+        byte[][] planes = ImageDecoder.bandPlanes(ycbcr);
+        if (targetWidth > 0) {
+            for (int band = 0; band < 3; band++) {
+                planes[band] = Photo.averageResizeLuma(planes[band], w, h, targetWidth, targetHeight);
+            }
+            w = targetWidth;
+            h = targetHeight;
+        }
+        byte[] luma = planes[0];
+        byte[] cbPlane = planes[1];
+        byte[] crPlane = planes[2];
+
+        int stride = ((w + 1) / 2) * 2; // whole chroma pairs in every row
+        int chromaRows = (h + 1) / 2;
+        byte[] data = new byte[(h + chromaRows) * stride];
+        for (int y = 0; y < h; y++) {
+            System.arraycopy(luma, y * w, data, y * stride, w);
+        }
+        for (int cy = 0; cy < chromaRows; cy++) {
+            int y = cy * 2;
+            int chroma = (h + cy) * stride;
+            for (int x = 0; x < w; x += 2) {
+                int samples = 0;
+                int cb = 0;
+                int cr = 0;
+                for (int dy = 0; (dy < 2) && ((y + dy) < h); dy++) {
+                    for (int dx = 0; (dx < 2) && ((x + dx) < w); dx++) {
+                        int i = ((y + dy) * w) + x + dx;
+                        cb += cbPlane[i] & 0xff;
+                        cr += crPlane[i] & 0xff;
+                        samples++;
+                    }
+                }
+                data[chroma + x] = (byte) ((cb + (samples / 2)) / samples);
+                data[chroma + x + 1] = (byte) ((cr + (samples / 2)) / samples);
+            }
+        }
+        return new RawFrame(data, 0, w, h, stride, RawFrame.Format.NV12).toImage();
+    }
+
+    /* the first three bands of a raster as separate planes of w * h bytes */
+    private static byte[][] bandPlanes(Raster raster) {
+        int w = raster.getWidth();
+        int h = raster.getHeight();
+        int bands = raster.getNumBands();
+        byte[][] planes = new byte[3][w * h];
+        int[] row = new int[w * bands];
+        for (int y = 0; y < h; y++) {
+            raster.getPixels(raster.getMinX(), raster.getMinY() + y, w, 1, row);
+            for (int x = 0; x < w; x++) {
+                for (int band = 0; band < 3; band++) {
+                    planes[band][(y * w) + x] = (byte) row[(x * bands) + band];
+                }
+            }
+        }
+        return planes;
+    }
+
+    /*
+     * TYPE_INT_RGB image resized down by averaging every color channel separately, the image must not be smaller than
+     * the result
+     */
+    static BufferedImage averageResize(BufferedImage image, int width, int height) {
+        int w = image.getWidth();
+        int h = image.getHeight();
+        byte[][] planes = new byte[3][w * h];
+        int[] row = new int[w];
+        for (int y = 0; y < h; y++) {
+            image.getRGB(0, y, w, 1, row, 0, w);
+            for (int x = 0; x < w; x++) {
+                int rgb = row[x];
+                planes[0][(y * w) + x] = (byte) (rgb >> 16);
+                planes[1][(y * w) + x] = (byte) (rgb >> 8);
+                planes[2][(y * w) + x] = (byte) rgb;
+            }
+        }
+        for (int band = 0; band < 3; band++) {
+            planes[band] = Photo.averageResizeLuma(planes[band], w, h, width, height);
+        }
+        BufferedImage resized = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        int[] data = ((DataBufferInt) resized.getRaster().getDataBuffer()).getData();
+        for (int i = 0; i < (width * height); i++) {
+            data[i] = 0xff000000 | ((planes[0][i] & 0xff) << 16) | ((planes[1][i] & 0xff) << 8) | (planes[2][i] & 0xff);
+        }
+        return resized;
+    }
+
+    /* the decoded image as TYPE_INT_RGB, which the analysis code reads directly */
+    static BufferedImage toIntRgb(BufferedImage image) throws IOException {
+        if (image == null) {
+            throw new IOException("Unsupported image format");
+        }
+        int w = image.getWidth();
+        int h = image.getHeight();
+        BufferedImage outimage = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+        if (image.getType() == BufferedImage.TYPE_3BYTE_BGR) {
+            // the usual JPEG result, the samples are copied without going through the color model
+            int[] data = ((DataBufferInt) outimage.getRaster().getDataBuffer()).getData();
+            int[] row = new int[w * 3];
+            for (int y = 0; y < h; y++) {
+                image.getRaster().getPixels(0, y, w, 1, row);
+                for (int x = 0; x < w; x++) {
+                    data[(y * w) + x] = 0xff000000 | (row[3 * x] << 16) | (row[(3 * x) + 1] << 8) | row[(3 * x) + 2];
+                }
+            }
+            return outimage;
+        }
+
+        Graphics2D g = outimage.createGraphics();
+        g.drawImage(image, 0, 0, null);
+        g.dispose();
+        return outimage;
+    }
+}
@@ -0,0 +1,188 @@
+/*
+------------------------------------------------------------------------
+JavaANPR - Automatic Number Plate Recognition System for Java
+------------------------------------------------------------------------
+
+This file is a part of the JavaANPR, licensed under the terms of the
+Educational Community License
+
+Copyright (c) 2006-2007 Ondrej Martinsky. All rights reserved
+
+This Original Work, including software, source code, documents, or
+other related items, is being provided by the copyright holder(s)
+subject to the terms of the Educational Community License. By
+obtaining, using and/or copying this Original Work, you agree that you
+have read, understand, and will comply with the following terms and
+conditions of the Educational Community License:
+
+Permission to use, copy, modify, merge, publish, distribute, and
+sublicense this Original Work and its documentation, with or without
+modification, for any purpose, and without fee or royalty to the
+copyright holder(s) is hereby granted, provided that you include the
+following on ALL copies of the Original Work or portions thereof,
+including modifications or derivatives, that you make:
+
+# The full text of the Educational Community License in a location
+viewable to users of the redistributed or derivative work.
+
+# Any pre-existing intellectual property disclaimers, notices, or terms
+and conditions.
+
+# Notice of any changes or modifications to the Original Work,
+including the date the changes were made.
+
+# Any modifications of the Original Work must be distributed in such a
+manner as to avoid any confusion with the Original Work of the
+copyright holders.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+The name and trademarks of copyright holder(s) may NOT be used in
+advertising or publicity pertaining to the Original or Derivative Works
+without specific, written prior permission. Title to copyright in the
+Original Work and any associated documentation will at all times remain
+with the copyright holders.
+
+If you want to alter upon this work, you MUST attribute it in
+a) all source files
+b) on every place, where is the copyright of derivated work
+exactly by the following label :
+
+---- label begin ----
+This work is a derivate of the JavaANPR. JavaANPR is a intellectual
+property of Ondrej Martinsky. Please visit http://javaanpr.sourceforge.net
+for more info about JavaANPR.
+----  label end  ----
+
+------------------------------------------------------------------------
+                                         http://javaanpr.sourceforge.net
+------------------------------------------------------------------------
+ */
+
+package net.sf.javaanpr.imageanalysis;
+
+/**
+ * Rectangular view into an 8-bit luma plane. The view does not own its pixels: it is a window (offset, stride and
+ * bounds) into a row-major buffer which may be shared with the region it was cut from. A band, a plate and a character
+ * can thus all be windows into one plane, the pixels are copied only if a stage modifies them.
+ */
+public class ImageRegion {
+    private final byte[] data;
+    private final int offset;
+    private final int stride;
+    private final int width;
+    private final int height;
+
+    /**
+     * Creates a view of a whole row-major plane.
+     *
+     * @param data the plane, one byte per pixel
+     * @param width width of the plane
+     * @param height height of the plane
+     */
+    public ImageRegion(byte[] data, int width, int height) {
+        this(data, 0, width, width, height);
+    }
+
+    /**
+     * Creates a view of a part of a row-major buffer.
+     *
+     * @param data the buffer, one byte per pixel
+     * @param offset index of the top left pixel of the view
+     * @param stride distance between vertically adjacent pixels
+     * @param width width of the view
+     * @param height height of the view
+     * @throws IllegalArgumentException if the view does not fit into the buffer
+     */
+    public ImageRegion(byte[] data, int offset, int stride, int width, int height) {
+        if ((width < 0) || (height < 0) || (offset < 0) || (stride < width)
+            || ((height > 0) && ((offset + ((long) (height - 1) * stride) + width) > data.length))) {
+            throw new IllegalArgumentException("Region " + width + "x" + height + " at offset " + offset + " (stride "
+                + stride + ") does not fit into a buffer of " + data.length + " bytes");
+        }
+        this.data = data;
+        this.offset = offset;
+        this.stride = stride;
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * Returns a view of a part of this region, sharing its pixels.
+     *
+     * @param x left edge, relative to this region
+     * @param y top edge, relative to this region
+     * @param width width of the view
+     * @param height height of the view
+     * @return the view
+     * @throws IllegalArgumentException if the rectangle is not inside this region
+     */
+    public ImageRegion getSubregion(int x, int y, int width, int height) {
+        if ((x < 0) || (y < 0) || (width < 0) || (height < 0) || ((x + width) > this.width)
+            || ((y + height) > this.height)) {
+            throw new IllegalArgumentException("Subregion " + width + "x" + height + " at (" + x + "," + y
+                + ") is outside of the region " + this.width + "x" + this.height);
+        }
+        return new ImageRegion(this.data, this.offset + (y * this.stride) + x, this.stride, width, height);
+    }
+
+    public byte[] getData() {
+        return this.data;
+    }
+
+    public int getOffset() {
+        return this.offset;
+    }
+
+    public int getStride() {
+        return this.stride;
+    }
+
+    public int getWidth() {
+        return this.width;
+    }
+
+    public int getHeight() {
+        return this.height;
+    }
+
+    /**
+     * @return the luma (0..255) of the pixel at the given position
+     */
+    public int getLuma(int x, int y) {
+        return this.data[this.offset + (y * this.stride) + x] & 0xff;
+    }
+
+    /**
+     * @return the brightness (0..1) of the pixel at the given position
+     */
+    public float getBrightness(int x, int y) {
+        return Photo.BRIGHTNESS[this.data[this.offset + (y * this.stride) + x] & 0xff];
+    }
+
+    /**
+     * @return true if the region covers its whole buffer in row-major order without gaps
+     */
+    public boolean isCompact() {
+        return (this.offset == 0) && (this.stride == this.width) && (this.data.length == (this.width * this.height));
+    }
+
+    /**
+     * Copies the pixels of the region into a new row-major plane.
+     *
+     * @return the plane, {@code width * height} bytes
+     */
+    public byte[] toArray() {
+        byte[] array = new byte[this.width * this.height];
+        for (int y = 0; y < this.height; y++) {
+            System.arraycopy(this.data, this.offset + (y * this.stride), array, y * this.width, this.width);
+        }
+        return array;
+    }
+}
@@ -0,0 +1,165 @@
+/*
+------------------------------------------------------------------------
+JavaANPR - Automatic Number Plate Recognition System for Java
+------------------------------------------------------------------------
+
+This file is a part of the JavaANPR, licensed under the terms of the
+Educational Community License
+
+Copyright (c) 2006-2007 Ondrej Martinsky. All rights reserved
+
+This Original Work, including software, source code, documents, or
+other related items, is being provided by the copyright holder(s)
+subject to the terms of the Educational Community License. By
+obtaining, using and/or copying this Original Work, you agree that you
+have read, understand, and will comply with the following terms and
+conditions of the Educational Community License:
+
+Permission to use, copy, modify, merge, publish, distribute, and
+sublicense this Original Work and its documentation, with or without
+modification, for any purpose, and without fee or royalty to the
+copyright holder(s) is hereby granted, provided that you include the
+following on ALL copies of the Original Work or portions thereof,
+including modifications or derivatives, that you make:
+
+# The full text of the Educational Community License in a location
+viewable to users of the redistributed or derivative work.
+
+# Any pre-existing intellectual property disclaimers, notices, or terms
+and conditions.
+
+# Notice of any changes or modifications to the Original Work,
+including the date the changes were made.
+
+# Any modifications of the Original Work must be distributed in such a
+manner as to avoid any confusion with the Original Work of the
+copyright holders.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+The name and trademarks of copyright holder(s) may NOT be used in
+advertising or publicity pertaining to the Original or Derivative Works
+without specific, written prior permission. Title to copyright in the
+Original Work and any associated documentation will at all times remain
+with the copyright holders.
+
+If you want to alter upon this work, you MUST attribute it in
+a) all source files
+b) on every place, where is the copyright of derivated work
+exactly by the following label :
+
+---- label begin ----
+This work is a derivate of the JavaANPR. JavaANPR is a intellectual
+property of Ondrej Martinsky. Please visit http://javaanpr.sourceforge.net
+for more info about JavaANPR.
+----  label end  ----
+
+------------------------------------------------------------------------
+                                         http://javaanpr.sourceforge.net
+------------------------------------------------------------------------
+ */
+
+package net.sf.javaanpr.imageanalysis;
+
+import java.util.Iterator;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+
+/**
+ * The innermost loops of the analysis: edge filters, projection sums and feature distances.
+ * <p>
+ * The implementation is chosen once, at startup. Implementations found on the classpath through
+ * {@link ServiceLoader} (e.g. one using the vector instructions of the CPU, shipped as a separate jar for the JVMs that
+ * support it) are preferred over the portable {@link ScalarKernels}. Setting the system property
+ * {@code javaanpr.kernels} to {@code scalar} forces the portable implementation.
+ * <p>
+ * Every implementation must return exactly the same results as {@link ScalarKernels}, so that recognition does not
+ * depend on the hardware. In particular floating point sums must be accumulated in the documented order.
+ */
+public abstract class Kernels {
+    private static final Kernels kernels = Kernels.load();
+
+    /**
+     * @return the kernels chosen at startup
+     */
+    public static Kernels getKernels() {
+        return Kernels.kernels;
+    }
+
+    private static Kernels load() {
+        if (!"scalar".equals(System.getProperty("javaanpr.kernels"))) {
+            try {
+                Iterator<Kernels> providers = ServiceLoader.load(Kernels.class).iterator();
+                while (providers.hasNext()) {
+                    Kernels provider = providers.next();
+                    if (provider.isSupported()) {
+                        return provider;
+                    }
+                }
+            } catch (ServiceConfigurationError e) {
+                System.err.println("Failed to load kernels, using the scalar ones: " + e.getMessage());
+            }
+        }
+        return new ScalarKernels();
+    }
+
+    /**
+     * @return true if the implementation can run on this JVM and CPU
+     */
+    public abstract boolean isSupported();
+
+    /**
+     * @return a short name of the implementation
+     */
+    public abstract String getName();
+
+    /**
+     * Applies an edge filter to the pixels {@code from} to {@code to - 1} of a row of packed RGB pixels, see
+     * {@link ProjectionProfile}. The kernel of the filter must fit on all of these pixels.
+     *
+     * @param filter the filter, not {@link ProjectionProfile.Filter#NONE}
+     * @param rgb packed RGB pixels
+     * @param index index of the first pixel of the row in {@code rgb}
+     * @param stride distance between vertically adjacent pixels
+     * @param out receives the filtered luma at the same positions as in the row
+     * @param from first pixel
+     * @param to end of the pixels
+     */
+    public abstract void filterRow(ProjectionProfile.Filter filter, int[] rgb, int index, int stride, int[] out,
+        int from, int to);
+
+    /**
+     * Adds the brightness of a row of luma values to per-column sums, luma lower than the threshold counts as black.
+     *
+     * @param sums the column sums
+     * @param luma the row
+     * @param width length of the row
+     * @param threshold the threshold
+     */
+    public abstract void accumulateColumns(float[] sums, int[] luma, int width, int threshold);
+
+    /**
+     * Sums the brightness of a row of luma values from left to right, luma lower than the threshold counts as black.
+     *
+     * @param luma the row
+     * @param width length of the row
+     * @param threshold the threshold
+     * @return the sum
+     */
+    public abstract float sumRow(int[] luma, int width, int threshold);
+
+    /**
+     * Sums the squared differences of two feature vectors in float, in ascending order of the features.
+     *
+     * @param a the first vector
+     * @param b the second vector, at least as long as {@code a}
+     * @return the sum
+     */
+    public abstract float squaredDistance(double[] a, double[] b);
+}
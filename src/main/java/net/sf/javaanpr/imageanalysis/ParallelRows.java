@@ -0,0 +1,152 @@
+/*
+------------------------------------------------------------------------
+JavaANPR - Automatic Number Plate Recognition System for Java
+------------------------------------------------------------------------
+
+This file is a part of the JavaANPR, licensed under the terms of the
+Educational Community License
+
+Copyright (c) 2006-2007 Ondrej Martinsky. All rights reserved
+
+This Original Work, including software, source code, documents, or
+other related items, is being provided by the copyright holder(s)
+subject to the terms of the Educational Community License. By
+obtaining, using and/or copying this Original Work, you agree that you
+have read, understand, and will comply with the following terms and
+conditions of the Educational Community License:
+
+Permission to use, copy, modify, merge, publish, distribute, and
+sublicense this Original Work and its documentation, with or without
+modification, for any purpose, and without fee or royalty to the
+copyright holder(s) is hereby granted, provided that you include the
+following on ALL copies of the Original Work or portions thereof,
+including modifications or derivatives, that you make:
+
+# The full text of the Educational Community License in a location
+viewable to users of the redistributed or derivative work.
+
+# Any pre-existing intellectual property disclaimers, notices, or terms
+and conditions.
+
+# Notice of any changes or modifications to the Original Work,
+including the date the changes were made.
+
+# Any modifications of the Original Work must be distributed in such a
+manner as to avoid any confusion with the Original Work of the
+copyright holders.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+The name and trademarks of copyright holder(s) may NOT be used in
+advertising or publicity pertaining to the Original or Derivative Works
+without specific, written prior permission. Title to copyright in the
+Original Work and any associated documentation will at all times remain
+with the copyright holders.
+
+If you want to alter upon this work, you MUST attribute it in
+a) all source files
+b) on every place, where is the copyright of derivated work
+exactly by the following label :
+
+---- label begin ----
+This work is a derivate of the JavaANPR. JavaANPR is a intellectual
+property of Ondrej Martinsky. Please visit http://javaanpr.sourceforge.net
+for more info about JavaANPR.
+----  label end  ----
+
+------------------------------------------------------------------------
+                                         http://javaanpr.sourceforge.net
+------------------------------------------------------------------------
+ */
+
+package net.sf.javaanpr.imageanalysis;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import net.sf.javaanpr.configurator.Configurator;
+
+/**
+ * Runs the rows (or columns) of an image filter in parallel on a fork-join pool shared by all filters. The range is
+ * split into bands of consecutive rows, every band is processed by a single thread in the same order as the sequential
+ * loop would. A filter therefore gives identical results as long as no row depends on the result of another one.
+ * <p>
+ * Images smaller than {@code photo_parallelthreshold} pixels are processed on the calling thread, where splitting them
+ * would cost more than it saves.
+ */
+final class ParallelRows {
+    /**
+     * A filter processing a range of rows.
+     */
+    interface Body {
+        /**
+         * @param from the first row
+         * @param to the row after the last one
+         */
+        void run(int from, int to);
+    }
+
+    private static final int threshold = Configurator.getConfigurator().getIntProperty("photo_parallelthreshold");
+    private static final ForkJoinPool pool = new ForkJoinPool();
+
+    private ParallelRows() {
+    }
+
+    /**
+     * @param pixels size of the image
+     * @return true if an image of the given size is processed in parallel
+     */
+    static boolean isParallel(long pixels) {
+        return (ParallelRows.threshold > 0) && (pixels >= ParallelRows.threshold)
+            && (ParallelRows.pool.getParallelism() > 1);
+    }
+
+    /**
+     * Processes the rows {@code 0..count-1}, in parallel if the image is large enough. Returns when all rows are done.
+     *
+     * @param count the number of rows
+     * @param pixels size of the image
+     * @param body the filter
+     */
+    static void forEach(int count, long pixels, Body body) {
+        if ((count < 2) || !ParallelRows.isParallel(pixels)) {
+            body.run(0, count);
+            return;
+        }
+        // a few bands per thread, so threads finishing early can steal the rest
+        int grain = Math.max(1, count / (ParallelRows.pool.getParallelism() * 4));
+        ParallelRows.pool.invoke(new RowBand(body, 0, count, grain));
+    }
+
+    private static class RowBand extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final Body body;
+        private final int from;
+        private final int to;
+        private final int grain;
+
+        RowBand(Body body, int from, int to, int grain) {
+            this.body = body;
+            this.from = from;
+            this.to = to;
+            this.grain = grain;
+        }
+
+        @Override
+        protected void compute() {
+            if ((this.to - this.from) <= this.grain) {
+                this.body.run(this.from, this.to);
+                return;
+            }
+            int middle = (this.from + this.to) >>> 1;
+            RecursiveAction.invokeAll(new RowBand(this.body, this.from, middle, this.grain),
+                new RowBand(this.body, middle, this.to, this.grain));
+        }
+    }
+}
@@ -75,20 +75,54 @@ import java.awt.geom.AffineTransform;
 import java.awt.image.BufferedImage;
 import java.awt.image.BufferedImageOp;
 import java.awt.image.ConvolveOp;
+import java.awt.image.DataBufferInt;
 import java.awt.image.Kernel;
 import java.awt.image.LookupOp;
 import java.awt.image.ShortLookupTable;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 import javax.imageio.ImageIO;
 
 import net.sf.javaanpr.configurator.Configurator;
 
 public class Photo implements AutoCloseable {
+    /**
+     * Brightness of a pixel indexed by its 8-bit luma (the largest of its RGB components). The values are identical to
+     * the brightness component computed by {@link Color#RGBtoHSB(int, int, int, float[])}.
+     */
+    static final float[] BRIGHTNESS = new float[256];
+
+    static {
+        for (int i = 0; i < Photo.BRIGHTNESS.length; i++) {
+            Photo.BRIGHTNESS[i] = i / 255.0f;
+        }
+    }
+
+    /**
+     * Name of the image property holding the {@link RawFrame} of an image loaded by {@link #loadLuma(InputStream)} or
+     * wrapping a YUV frame. Subimages inherit the property, see {@link #colorPixels(BufferedImage)}.
+     */
+    static final String YCBCR_PROPERTY = "javaanpr.ycbcr";
+
+    /**
+     * Pixel data of the photo. It is {@code null} while the photo is backed by a luma plane only, use {@link #getBi()}
+     * to have it materialized.
+     */
     public BufferedImage image;
 
+    /* 8-bit luma plane, the working representation of the analysis code */
+    private ImageRegion luma;
+    /* true if the plane may be shared with other photos and has to be copied before it is modified */
+    private boolean lumaShared;
+    /* image the luma plane was computed from, null if the plane itself holds the pixel data */
+    private BufferedImage lumaSource;
+
     public Photo(BufferedImage bi) {
         this.image = bi;
     }
@@ -97,16 +131,53 @@ public class Photo implements AutoCloseable {
         this.loadImage(is);
     }
 
+    public Photo(byte[] luma, int width, int height) {
+        this.setLuma(luma, width, height);
+    }
+
+    /**
+     * Creates a photo backed by a view of a luma plane, without an image. The pixels are shared with the view until the
+     * photo is modified.
+     *
+     * @param region the luma plane
+     */
+    public Photo(ImageRegion region) {
+        this.setRegion(region);
+    }
+
+    /**
+     * Creates a photo of an image whose luma plane is already known, typically a subimage together with the matching
+     * view of the plane of the photo it was cut from, so the plane is not computed again.
+     *
+     * @param bi the image
+     * @param region the luma plane of the image, of the same size, or {@code null} to compute it on first use
+     */
+    public Photo(BufferedImage bi, ImageRegion region) {
+        this.image = bi;
+        this.luma = region;
+        this.lumaShared = true;
+        this.lumaSource = region == null ? null : bi;
+    }
+
     @Override
     public Photo clone() {
+        if (this.image == null) {
+            return new Photo(this.luma.toArray(), this.luma.getWidth(), this.luma.getHeight());
+        }
         return new Photo(duplicateBufferedImage(this.image));
     }
 
     public int getWidth() {
+        if (this.image == null) {
+            return this.luma.getWidth();
+        }
         return this.image.getWidth();
     }
 
     public int getHeight() {
+        if (this.image == null) {
+            return this.luma.getHeight();
+        }
         return this.image.getHeight();
     }
 
@@ -115,29 +186,130 @@ public class Photo implements AutoCloseable {
     }
 
     public BufferedImage getBi() {
+        if ((this.image == null) && (this.luma != null)) {
+            this.image = Photo.lumaToBufferedImage(this.luma);
+            this.lumaSource = this.image;
+        }
         return this.image;
     }
 
+    /**
+     * Returns the row-major 8-bit luma plane of this photo, computing it from the image on first use or after the image
+     * has been replaced. The plane is shared, callers must not modify it.
+     *
+     * @return the luma plane, {@code getWidth() * getHeight()} bytes
+     */
+    public byte[] getLuma() {
+        ImageRegion region = this.getRegion();
+        if (!region.isCompact()) {
+            this.luma = new ImageRegion(region.toArray(), region.getWidth(), region.getHeight());
+            this.lumaShared = false;
+        }
+        return this.luma.getData();
+    }
+
+    /**
+     * Returns the luma plane of this photo as a view, without copying it if the photo is itself a view into a larger
+     * plane. The plane is shared, callers must not modify it.
+     *
+     * @return the luma plane
+     */
+    public ImageRegion getRegion() {
+        if ((this.image != null) && ((this.luma == null) || (this.lumaSource != this.image))) {
+            // images wrapping the plane of a raw frame are not copied
+            ImageRegion view = RawFrame.lumaView(this.image);
+            if (view != null) {
+                this.luma = view;
+                this.lumaShared = true;
+            } else {
+                this.luma = new ImageRegion(Photo.computeLuma(this.image), this.image.getWidth(),
+                    this.image.getHeight());
+                this.lumaShared = false;
+            }
+            this.lumaSource = this.image;
+        }
+        return this.luma;
+    }
+
+    /**
+     * Replaces the pixel data of this photo with the given luma plane. The image is dropped and materialized again on
+     * the next call to {@link #getBi()}.
+     *
+     * @param luma the luma plane, one byte per pixel, owned by this photo from now on
+     * @param width width of the plane
+     * @param height height of the plane
+     */
+    public void setLuma(byte[] luma, int width, int height) {
+        this.image = null;
+        this.luma = new ImageRegion(luma, width, height);
+        this.lumaShared = false;
+        this.lumaSource = null;
+    }
+
+    /**
+     * Replaces the pixel data of this photo with a view of a luma plane. The view is not copied, the photo copies it
+     * only before modifying it. The image is dropped and materialized again on the next call to {@link #getBi()}.
+     *
+     * @param region the luma plane
+     */
+    public void setRegion(ImageRegion region) {
+        this.image = null;
+        this.luma = region;
+        this.lumaShared = true;
+        this.lumaSource = null;
+    }
+
+    /**
+     * Replaces the image of this photo with a subimage of it. A luma plane computed for the image is cut the same way
+     * instead of being computed again.
+     *
+     * @param x the left edge of the subimage
+     * @param y the top edge of the subimage
+     * @param width width of the subimage
+     * @param height height of the subimage
+     */
+    protected void crop(int x, int y, int width, int height) {
+        BufferedImage image = this.getBi();
+        boolean current = (this.luma != null) && (this.lumaSource == image);
+        this.image = image.getSubimage(x, y, width, height);
+        if (current) {
+            this.luma = this.luma.getSubregion(x, y, width, height);
+            this.lumaShared = true;
+            this.lumaSource = this.image;
+        }
+    }
+
+    /**
+     * Drops the cached luma plane, must be called after the image has been modified in place.
+     */
+    protected void invalidateLuma() {
+        if (this.image != null) {
+            this.luma = null;
+            this.lumaSource = null;
+        }
+    }
+
     public BufferedImage getBiWithAxes() {
-        BufferedImage axis = new BufferedImage(this.image.getWidth() + 40, this.image.getHeight() + 40,
+        BufferedImage image = this.getBi();
+        BufferedImage axis = new BufferedImage(image.getWidth() + 40, image.getHeight() + 40,
             BufferedImage.TYPE_INT_RGB);
         Graphics2D graphicAxis = axis.createGraphics();
 
         graphicAxis.setColor(Color.LIGHT_GRAY);
-        Rectangle backRect = new Rectangle(0, 0, this.image.getWidth() + 40, this.image.getHeight() + 40);
+        Rectangle backRect = new Rectangle(0, 0, image.getWidth() + 40, image.getHeight() + 40);
         graphicAxis.fill(backRect);
         graphicAxis.draw(backRect);
 
-        graphicAxis.drawImage(this.image, 35, 5, null);
+        graphicAxis.drawImage(image, 35, 5, null);
 
         graphicAxis.setColor(Color.BLACK);
-        graphicAxis.drawRect(35, 5, this.image.getWidth(), this.image.getHeight());
+        graphicAxis.drawRect(35, 5, image.getWidth(), image.getHeight());
 
-        for (int ax = 0; ax < this.image.getWidth(); ax += 50) {
+        for (int ax = 0; ax < image.getWidth(); ax += 50) {
             graphicAxis.drawString(new Integer(ax).toString(), ax + 35, axis.getHeight() - 10);
-            graphicAxis.drawLine(ax + 35, this.image.getHeight() + 5, ax + 35, this.image.getHeight() + 15);
+            graphicAxis.drawLine(ax + 35, image.getHeight() + 5, ax + 35, image.getHeight() + 15);
         }
-        for (int ay = 0; ay < this.image.getHeight(); ay += 50) {
+        for (int ay = 0; ay < image.getHeight(); ay += 50) {
             graphicAxis.drawString(new Integer(ay).toString(), 3, ay + 15);
             graphicAxis.drawLine(25, ay + 5, 35, ay + 5);
         }
@@ -146,19 +318,29 @@ public class Photo implements AutoCloseable {
     }
 
     public void setBrightness(int x, int y, float value) {
-        this.image.setRGB(x, y, new Color(value, value, value).getRGB());
+        int l = Photo.toLuma(value);
+        if ((this.luma != null) && ((this.image == null) || (this.lumaSource == this.image))) {
+            if (this.lumaShared) {
+                this.luma = new ImageRegion(this.luma.toArray(), this.luma.getWidth(), this.luma.getHeight());
+                this.lumaShared = false;
+            }
+            this.luma.getData()[(y * this.luma.getWidth()) + x] = (byte) l;
+        }
+        if (this.image != null) {
+            this.image.setRGB(x, y, Photo.grayRgb(l));
+        }
     }
 
     static public void setBrightness(BufferedImage image, int x, int y, float value) {
-        image.setRGB(x, y, new Color(value, value, value).getRGB());
+        image.setRGB(x, y, Photo.grayRgb(Photo.toLuma(value)));
     }
 
     static public float getBrightness(BufferedImage image, int x, int y) {
-        int r = image.getRaster().getSample(x, y, 0);
-        int g = image.getRaster().getSample(x, y, 1);
-        int b = image.getRaster().getSample(x, y, 2);
-        float[] hsb = Color.RGBtoHSB(r, g, b, null);
-        return hsb[2];
+        WritableRaster raster = image.getRaster();
+        int r = raster.getSample(x, y, 0);
+        int g = raster.getSample(x, y, 1);
+        int b = raster.getSample(x, y, 2);
+        return Photo.BRIGHTNESS[Math.max(r, Math.max(g, b))];
     }
 
     static public float getSaturation(BufferedImage image, int x, int y) {
@@ -180,15 +362,124 @@ public class Photo implements AutoCloseable {
     }
 
     public float getBrightness(int x, int y) {
-        return Photo.getBrightness(this.image, x, y);
+        return this.getRegion().getBrightness(x, y);
     }
 
     public float getSaturation(int x, int y) {
-        return Photo.getSaturation(this.image, x, y);
+        return Photo.getSaturation(this.getBi(), x, y);
     }
 
     public float getHue(int x, int y) {
-        return Photo.getHue(this.image, x, y);
+        return Photo.getHue(this.getBi(), x, y);
+    }
+
+    /**
+     * Converts a brightness in the range 0..1 to 8-bit luma, rounding the same way as {@link Color#Color(float, float,
+     * float)}.
+     *
+     * @param value the brightness
+     * @return the luma
+     */
+    static int toLuma(float value) {
+        return (int) ((value * 255) + 0.5);
+    }
+
+    static int grayRgb(int luma) {
+        return 0xff000000 | (luma << 16) | (luma << 8) | luma;
+    }
+
+    /**
+     * Computes the 8-bit luma plane of an image, i.e. the largest of the RGB components of every pixel, in row-major
+     * order. Images backed by packed int pixels are read directly from their data buffer.
+     *
+     * @param image the image
+     * @return the luma plane, {@code width * height} bytes
+     */
+    static public byte[] computeLuma(BufferedImage image) {
+        final int w = image.getWidth();
+        int h = image.getHeight();
+        final byte[] luma = new byte[w * h];
+        final WritableRaster raster = image.getRaster();
+
+        if ((raster.getDataBuffer() instanceof DataBufferInt) && Photo.isPackedRgb(raster)) {
+            SinglePixelPackedSampleModel sm = (SinglePixelPackedSampleModel) raster.getSampleModel();
+            final int[] data = ((DataBufferInt) raster.getDataBuffer()).getData();
+            final int stride = sm.getScanlineStride();
+            final int offset = raster.getDataBuffer().getOffset()
+                + sm.getOffset(-raster.getSampleModelTranslateX(), -raster.getSampleModelTranslateY());
+            ParallelRows.forEach(h, (long) w * h, new ParallelRows.Body() {
+                @Override
+                public void run(int from, int to) {
+                    for (int y = from; y < to; y++) {
+                        int in = offset + (y * stride);
+                        int out = y * w;
+                        for (int x = 0; x < w; x++) {
+                            int rgb = data[in + x];
+                            int r = (rgb >> 16) & 0xff;
+                            int g = (rgb >> 8) & 0xff;
+                            int b = rgb & 0xff;
+                            luma[out + x] = (byte) Math.max(r, Math.max(g, b));
+                        }
+                    }
+                }
+            });
+            return luma;
+        }
+
+        final int bands = raster.getNumBands();
+        final int colorBands = Math.min(bands, 3);
+        ParallelRows.forEach(h, (long) w * h, new ParallelRows.Body() {
+            @Override
+            public void run(int from, int to) {
+                int[] row = new int[w * bands];
+                for (int y = from; y < to; y++) {
+                    raster.getPixels(0, y, w, 1, row);
+                    int out = y * w;
+                    for (int x = 0; x < w; x++) {
+                        int max = 0;
+                        for (int band = 0; band < colorBands; band++) {
+                            max = Math.max(max, row[(x * bands) + band]);
+                        }
+                        luma[out + x] = (byte) max;
+                    }
+                }
+            }
+        });
+        return luma;
+    }
+
+    private static boolean isPackedRgb(WritableRaster raster) {
+        if (!(raster.getSampleModel() instanceof SinglePixelPackedSampleModel)) {
+            return false;
+        }
+        int[] masks = ((SinglePixelPackedSampleModel) raster.getSampleModel()).getBitMasks();
+        if (masks.length < 3) {
+            return false;
+        }
+        for (int i = 0; i < 3; i++) {
+            if ((masks[i] != 0xff0000) && (masks[i] != 0xff00) && (masks[i] != 0xff)) {
+                return false;
+            }
+        }
+        return (masks[0] | masks[1] | masks[2]) == 0xffffff;
+    }
+
+    static public BufferedImage lumaToBufferedImage(byte[] luma, int w, int h) {
+        return Photo.lumaToBufferedImage(new ImageRegion(luma, w, h));
+    }
+
+    static public BufferedImage lumaToBufferedImage(ImageRegion region) {
+        int w = region.getWidth();
+        int h = region.getHeight();
+        BufferedImage bi = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+        int[] row = new int[w];
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                row[x] = Photo.grayRgb(region.getLuma(x, y));
+            }
+            bi.setRGB(0, y, w, 1, row, 0, w);
+        }
+        return bi;
     }
 
     /**
@@ -215,16 +506,102 @@ public class Photo implements AutoCloseable {
     }
 
     public void loadImage(InputStream is) throws IOException {
-        BufferedImage image = ImageIO.read(is);
+        this.image = ImageDecoder.get().decode(is, false, 0);
+    }
 
-        BufferedImage outimage = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+    /**
+     * Loads an image, skipping the color conversion of JPEG files in the YCbCr color space: the image is backed by the
+     * luma plane of the file, one byte per pixel, and the chroma is kept subsampled 2x2 in its {@link #YCBCR_PROPERTY},
+     * so that the color of small regions can be computed by {@link #colorPixels(BufferedImage)} when needed. The
+     * brightness of the image is the luma of the file rather than the largest RGB component. Other images are loaded
+     * like by {@link #loadImage(InputStream)}.
+     *
+     * @param is the stream
+     * @throws IOException if the image cannot be read
+     */
+    public void loadLuma(InputStream is) throws IOException {
+        this.loadImage(is, true, 0, false);
+    }
 
-        Graphics2D g = outimage.createGraphics();
-        g.drawImage(image, 0, 0, null);
-        g.dispose();
+    /**
+     * Loads an image, optionally decoding it directly at a reduced resolution: images wider than {@code maxWidth} are
+     * subsampled by the reader and resized down to {@code maxWidth}, see {@link ImageDecoder#decode(InputStream,
+     * boolean, int, boolean)}.
+     *
+     * @param is the stream
+     * @param lumaOnly if true, JPEG files are loaded like by {@link #loadLuma(InputStream)}
+     * @param maxWidth the largest width of the loaded image, 0 for the native resolution
+     * @param compact if true, the image is kept in the layout of the decoder, see
+     *            {@link ImageDecoder#decode(InputStream, boolean, int, boolean)}
+     * @return source pixels per pixel of the loaded image, 1 if it has been loaded at its native resolution
+     * @throws IOException if the image cannot be read
+     */
+    protected double loadImage(InputStream is, boolean lumaOnly, int maxWidth, boolean compact) throws IOException {
+        ImageDecoder decoder = ImageDecoder.get();
+        this.image = decoder.decode(is, lumaOnly, maxWidth, compact);
+        return decoder.getScale();
+    }
+
+    /**
+     * Loads an encoded image held in memory, see {@link #loadImage(InputStream, boolean, int, boolean)}.
+     *
+     * @param data the encoded image, from its position to its limit
+     * @param lumaOnly if true, JPEG files are loaded like by {@link #loadLuma(InputStream)}
+     * @param maxWidth the largest width of the loaded image, 0 for the native resolution
+     * @param compact if true, the image is kept in the layout of the decoder
+     * @return source pixels per pixel of the loaded image, 1 if it has been loaded at its native resolution
+     * @throws IOException if the image cannot be read
+     */
+    protected double loadImage(ByteBuffer data, boolean lumaOnly, int maxWidth, boolean compact) throws IOException {
+        ImageDecoder decoder = ImageDecoder.get();
+        this.image = decoder.decode(data, lumaOnly, maxWidth, compact);
+        return decoder.getScale();
+    }
 
-        this.image = outimage;
+    /**
+     * Returns the pixels of an image in color. Images loaded by {@link #loadLuma(InputStream)} or wrapping a YUV
+     * {@link RawFrame}, and their subimages, are converted from the chroma of the frame, only the area of the image is
+     * converted. Other images are returned as they are.
+     *
+     * @param image the image
+     * @return the image, or a color copy of it
+     */
+    static public BufferedImage colorPixels(BufferedImage image) {
+        Object property = image.getProperty(Photo.YCBCR_PROPERTY);
+        if (!(property instanceof RawFrame)) {
+            return image;
+        }
+        int w = image.getWidth();
+        int h = image.getHeight();
+        // subimages share the raster of the loaded image, translated to their origin
+        int left = -image.getRaster().getSampleModelTranslateX();
+        int top = -image.getRaster().getSampleModelTranslateY();
+        RawFrame frame = (RawFrame) property;
+        if (((left + w) > frame.getWidth()) || ((top + h) > frame.getHeight())) {
+            return image;
+        }
+        BufferedImage color = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+        int[] data = ((DataBufferInt) color.getRaster().getDataBuffer()).getData();
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                data[(y * w) + x] = frame.getRgb(left + x, top + y);
+            }
+        }
+        return color;
+    }
 
+    /* JFIF conversion */
+    static int ycbcrToRgb(int y, int cb, int cr) {
+        cb -= 128;
+        cr -= 128;
+        int r = Photo.clampComponent(Math.round(y + (1.402f * cr)));
+        int g = Photo.clampComponent(Math.round(y - (0.344136f * cb) - (0.714136f * cr)));
+        int b = Photo.clampComponent(Math.round(y + (1.772f * cb)));
+        return 0xff000000 | (r << 16) | (g << 8) | b;
+    }
+
+    private static int clampComponent(int value) {
+        return Math.max(0, Math.min(255, value));
     }
 
     public void saveImage(String filepath) throws IOException {
@@ -233,22 +610,21 @@ public class Photo implements AutoCloseable {
             throw new IOException("Unsupported file format");
         }
         File destination = new File(filepath);
-        ImageIO.write(this.image, type, destination);
+        ImageIO.write(this.getBi(), type, destination);
     }
 
     public void normalizeBrightness(float coef) {
         Statistics stats = new Statistics(this);
-        for (int x = 0; x < this.getWidth(); x++) {
-            for (int y = 0; y < this.getHeight(); y++) {
-                Photo.setBrightness(this.image, x, y,
-                    stats.thresholdBrightness(Photo.getBrightness(this.image, x, y), coef));
-            }
-        }
+        int w = this.getWidth();
+        int h = this.getHeight();
+        byte[] normalized = new byte[w * h];
+        Photo.applyLut(this.getLuma(), normalized, stats.thresholdLut(coef), w, h);
+        this.setLuma(normalized, w, h);
     }
 
     // FILTERS
     public void linearResize(int width, int height) {
-        this.image = Photo.linearResizeBi(this.image, width, height);
+        this.image = Photo.linearResizeBi(this.getBi(), width, height);
     }
 
     static public BufferedImage linearResizeBi(BufferedImage origin, int width, int height) {
@@ -262,8 +638,57 @@ public class Photo implements AutoCloseable {
         return resizedImage;
     }
 
+    /**
+     * Downscales an image by an integer factor, every pixel of the result is the average of a block of factor x factor
+     * pixels, per RGB channel. The pixels on the right and bottom edge that do not fill a whole block are dropped.
+     *
+     * @param origin the image
+     * @param factor the downscaling factor
+     * @return a new TYPE_INT_RGB image
+     */
+    static public BufferedImage boxDownscaleBi(BufferedImage origin, int factor) {
+        int w = Math.max(1, origin.getWidth() / factor);
+        int h = Math.max(1, origin.getHeight() / factor);
+        int blockWidth = Math.min(factor, origin.getWidth());
+        int blockHeight = Math.min(factor, origin.getHeight());
+        int count = blockWidth * blockHeight;
+        BufferedImage downscaled = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+        RecognitionContext context = RecognitionContext.get();
+        int[] rows = context.getInts(origin.getWidth() * blockHeight);
+        int[] c0 = context.getInts(w);
+        int[] c1 = context.getInts(w);
+        int[] c2 = context.getInts(w);
+        int[] out = context.getInts(w);
+        for (int y = 0; y < h; y++) {
+            origin.getRGB(0, y * blockHeight, w * blockWidth, blockHeight, rows, 0, origin.getWidth());
+            Arrays.fill(c0, 0, w, 0);
+            Arrays.fill(c1, 0, w, 0);
+            Arrays.fill(c2, 0, w, 0);
+            for (int row = 0; row < blockHeight; row++) {
+                int index = row * origin.getWidth();
+                for (int x = 0; x < (w * blockWidth); x++) {
+                    int rgb = rows[index + x];
+                    int block = x / blockWidth;
+                    c0[block] += (rgb >> 16) & 0xff;
+                    c1[block] += (rgb >> 8) & 0xff;
+                    c2[block] += rgb & 0xff;
+                }
+            }
+            for (int x = 0; x < w; x++) {
+                out[x] = 0xff000000 | ((c0[x] / count) << 16) | ((c1[x] / count) << 8) | (c2[x] / count);
+            }
+            downscaled.setRGB(0, y, w, 1, out, 0, w);
+        }
+        return downscaled;
+    }
+
     public void averageResize(int width, int height) {
-        this.image = this.averageResizeBi(this.image, width, height);
+        if ((this.getWidth() < width) || (this.getHeight() < height)) {
+            this.image = Photo.linearResizeBi(this.getBi(), width, height);
+            return;
+        }
+        this.setLuma(Photo.averageResizeLuma(this.getLuma(), this.getWidth(), this.getHeight(), width, height), width,
+            height);
     }
 
     public BufferedImage averageResizeBi(BufferedImage origin, int width, int height) { // TODO 2 Nefunguje dobre pre znaky
@@ -277,44 +702,22 @@ public class Photo implements AutoCloseable {
             // radsej linearnu transformaciu
         }
 
+        byte[] resized = Photo.averageResizeLuma(Photo.computeLuma(origin), origin.getWidth(), origin.getHeight(),
+            width, height);
+        return Photo.lumaToBufferedImage(resized, width, height);
+    }
+
+    static byte[] averageResizeLuma(byte[] origin, int originWidth, int originHeight, int width, int height) {
         /*
          * java api standardne zmensuje obrazky bilinearnou metodou, resp. linear mapping. co so sebou prinasa dost velku stratu
          * informacie. Idealna by bola fourierova transformacia, ale ta neprichadza do uvahy z dovodu velkej cesovej narocnosti
          * preto sa ako optimalna javi metoda WEIGHTED AVERAGE
          */
-        BufferedImage resized = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
-
-        float xScale = (float) origin.getWidth() / width;
-        float yScale = (float) origin.getHeight() / height;
-
-        for (int x = 0; x < width; x++) {
-            int x0min = Math.round(x * xScale);
-            int x0max = Math.round((x + 1) * xScale);
-
-            for (int y = 0; y < height; y++) {
-                int y0min = Math.round(y * yScale);
-                int y0max = Math.round((y + 1) * yScale);
-
-                // spravit priemer okolia a ulozit do resizedImage;
-                float sum = 0;
-                int sumCount = 0;
-
-                for (int x0 = x0min; x0 < x0max; x0++) {
-                    for (int y0 = y0min; y0 < y0max; y0++) {
-                        sum += Photo.getBrightness(origin, x0, y0);
-                        sumCount++;
-                    }
-                }
-                sum /= sumCount;
-                Photo.setBrightness(resized, x, y, sum);
-                //
-            }
-        }
-        return resized;
+        return AverageResizer.get(originWidth, originHeight, width, height).resize(origin);
     }
 
     public Photo duplicate() {
-        return new Photo(Photo.duplicateBufferedImage(this.image));
+        return new Photo(Photo.duplicateBufferedImage(this.getBi()));
     }
 
     static public BufferedImage duplicateBufferedImage(BufferedImage image) {
@@ -343,26 +746,49 @@ public class Photo implements AutoCloseable {
         // float data2[] = { 1, 0, -1, 2, 0, -2, 1, 0, -1, };
 
         new ConvolveOp(new Kernel(3, 3, data1), ConvolveOp.EDGE_NO_OP, null).filter(destination, source);
+        if (source == this.image) {
+            this.invalidateLuma();
+        }
     }
 
     public float[][] bufferedImageToArray(BufferedImage image, int w, int h) {
-        float[][] array = new float[w][h];
-        for (int x = 0; x < w; x++) {
-            for (int y = 0; y < h; y++) {
-                array[x][y] = Photo.getBrightness(image, x, y);
+        return Photo.lumaToArray(image == this.image ? this.getLuma() : Photo.computeLuma(image), image.getWidth(), w,
+            h);
+    }
+
+    static float[][] lumaToArray(final byte[] luma, final int stride, int w, final int h) {
+        final float[][] array = new float[w][h];
+        ParallelRows.forEach(w, (long) w * h, new ParallelRows.Body() {
+            @Override
+            public void run(int from, int to) {
+                for (int x = from; x < to; x++) {
+                    for (int y = 0; y < h; y++) {
+                        array[x][y] = Photo.BRIGHTNESS[luma[(y * stride) + x] & 0xff];
+                    }
+                }
             }
-        }
+        });
         return array;
     }
 
     public float[][] bufferedImageToArrayWithBounds(BufferedImage image, int w, int h) {
-        float[][] array = new float[w + 2][h + 2];
+        return Photo.lumaToArrayWithBounds(image == this.image ? this.getLuma() : Photo.computeLuma(image),
+            image.getWidth(), w, h);
+    }
 
-        for (int x = 0; x < w; x++) {
-            for (int y = 0; y < h; y++) {
-                array[x + 1][y + 1] = Photo.getBrightness(image, x, y);
+    static float[][] lumaToArrayWithBounds(final byte[] luma, final int stride, int w, final int h) {
+        final float[][] array = new float[w + 2][h + 2];
+
+        ParallelRows.forEach(w, (long) w * h, new ParallelRows.Body() {
+            @Override
+            public void run(int from, int to) {
+                for (int x = from; x < to; x++) {
+                    for (int y = 0; y < h; y++) {
+                        array[x + 1][y + 1] = Photo.BRIGHTNESS[luma[(y * stride) + x] & 0xff];
+                    }
+                }
             }
-        }
+        });
         // vynulovat hrany :
         for (int x = 0; x < (w + 2); x++) {
             array[x][0] = 1;
@@ -398,77 +824,162 @@ public class Photo implements AutoCloseable {
     public BufferedImage sumBi(BufferedImage bi1, BufferedImage bi2) { // used
                                                                        // by
                                                                        // edgeDetectors
-        BufferedImage out = new BufferedImage(Math.min(bi1.getWidth(), bi2.getWidth()), Math.min(bi1.getHeight(),
-            bi2.getHeight()), BufferedImage.TYPE_INT_RGB);
-
-        for (int x = 0; x < out.getWidth(); x++) {
-            for (int y = 0; y < out.getHeight(); y++) {
-                Photo.setBrightness(out, x, y,
-                    (float) Math.min(1.0, Photo.getBrightness(bi1, x, y) + Photo.getBrightness(bi2, x, y)));
+        final int w = Math.min(bi1.getWidth(), bi2.getWidth());
+        int h = Math.min(bi1.getHeight(), bi2.getHeight());
+        final byte[] luma1 = Photo.computeLuma(bi1);
+        final byte[] luma2 = Photo.computeLuma(bi2);
+        final int stride1 = bi1.getWidth();
+        final int stride2 = bi2.getWidth();
+        final byte[] out = new byte[w * h];
+
+        ParallelRows.forEach(h, (long) w * h, new ParallelRows.Body() {
+            @Override
+            public void run(int from, int to) {
+                for (int y = from; y < to; y++) {
+                    for (int x = 0; x < w; x++) {
+                        out[(y * w) + x] = (byte) Photo.toLuma((float) Math.min(1.0,
+                            Photo.BRIGHTNESS[luma1[(y * stride1) + x] & 0xff]
+                                + Photo.BRIGHTNESS[luma2[(y * stride2) + x] & 0xff]));
+                    }
+                }
             }
-        }
-        return out;
+        });
+        return Photo.lumaToBufferedImage(out, w, h);
     }
 
     public void plainThresholding(Statistics stat) {
         int w = this.getWidth();
         int h = this.getHeight();
-        for (int x = 0; x < w; x++) {
-            for (int y = 0; y < h; y++) {
-                this.setBrightness(x, y, stat.thresholdBrightness(this.getBrightness(x, y), 1.0f));
+        byte[] destination = new byte[w * h];
+        Photo.applyLut(this.getLuma(), destination, stat.thresholdLut(1.0f), w, h);
+        this.setLuma(destination, w, h);
+    }
+
+    /* maps every pixel of a w x h plane through a lookup table */
+    private static void applyLut(final byte[] source, final byte[] destination, final byte[] lut, final int w, int h) {
+        ParallelRows.forEach(h, (long) w * h, new ParallelRows.Body() {
+            @Override
+            public void run(int from, int to) {
+                for (int i = from * w; i < (to * w); i++) {
+                    destination[i] = lut[source[i] & 0xff];
+                }
             }
-        }
+        });
     }
 
-    /** ADAPTIVE THRESHOLDING CEZ GETNEIGHBORHOOD - deprecated */
+    /**
+     * Adaptive thresholding, every pixel is compared to the average brightness of its (2r+1)x(2r+1) neighborhood, where
+     * r is the {@code photo_adaptivethresholdingradius}. A radius of 0 means plain thresholding.
+     * <p>
+     * Neighborhood sums are taken from a summed-area table of the luma plane, so the cost per pixel does not depend on
+     * the radius. The result is bit-identical to summing the neighborhood brightness in floating point, see
+     * {@link #neighborhoodAverage(byte[], int, int, int, int, int)}.
+     */
     public void adaptiveThresholding() { // jedine pouzitie tejto funkcie by
                                          // malo byt v konstruktore znacky
-        Statistics stat = new Statistics(this);
         int radius = Configurator.getConfigurator().getIntProperty("photo_adaptivethresholdingradius");
         if (radius == 0) {
-            this.plainThresholding(stat);
+            this.plainThresholding(new Statistics(this));
             return;
         }
 
-        // /
-        int w = this.getWidth();
-        int h = this.getHeight();
-
-        float[][] sourceArray = this.bufferedImageToArray(this.image, w, h);
-        float[][] destinationArray = this.bufferedImageToArray(this.image, w, h);
-
-        int count;
-        float neighborhood;
-
-        for (int x = 0; x < w; x++) {
-            for (int y = 0; y < h; y++) {
-                // compute neighborhood
-                count = 0;
-                neighborhood = 0;
-                for (int ix = x - radius; ix <= (x + radius); ix++) {
-                    for (int iy = y - radius; iy <= (y + radius); iy++) {
-                        if ((ix >= 0) && (iy >= 0) && (ix < w) && (iy < h)) {
-                            neighborhood += sourceArray[ix][iy];
-                            count++;
+        final int r = radius;
+        final int w = this.getWidth();
+        final int h = this.getHeight();
+        final long pixels = (long) w * h;
+
+        final byte[] source = this.getLuma();
+        final byte[] destination = new byte[w * h];
+
+        // integral[(y * (w + 1)) + x] = sum of luma in the rectangle <0, x) x <0, y). The sums may overflow for huge
+        // images, but the window sums computed from them are exact as they are small enough to fit into an int.
+        // The rows are summed first, then the row sums are accumulated down the columns
+        final int stride = w + 1;
+        final int[] integral = RecognitionContext.get().getInts(stride * (h + 1));
+        Arrays.fill(integral, 0, stride, 0);
+        ParallelRows.forEach(h, pixels, new ParallelRows.Body() {
+            @Override
+            public void run(int from, int to) {
+                for (int y = from; y < to; y++) {
+                    int rowSum = 0;
+                    integral[(y + 1) * stride] = 0;
+                    for (int x = 0; x < w; x++) {
+                        rowSum += source[(y * w) + x] & 0xff;
+                        integral[((y + 1) * stride) + x + 1] = rowSum;
+                    }
+                }
+            }
+        });
+        ParallelRows.forEach(w, pixels, new ParallelRows.Body() {
+            @Override
+            public void run(int from, int to) {
+                for (int y = 1; y < h; y++) {
+                    for (int x = from + 1; x <= to; x++) {
+                        integral[((y + 1) * stride) + x] += integral[(y * stride) + x];
+                    }
+                }
+            }
+        });
+
+        ParallelRows.forEach(h, pixels, new ParallelRows.Body() {
+            @Override
+            public void run(int from, int to) {
+                for (int y = from; y < to; y++) {
+                    int y0 = Math.max(0, y - r);
+                    int y1 = Math.min(h, y + r + 1);
+                    for (int x = 0; x < w; x++) {
+                        int x0 = Math.max(0, x - r);
+                        int x1 = Math.min(w, x + r + 1);
+                        int count = (x1 - x0) * (y1 - y0);
+                        int sum = (integral[(y1 * stride) + x1] - integral[(y0 * stride) + x1]
+                            - integral[(y1 * stride) + x0]) + integral[(y0 * stride) + x0];
+                        int value = source[(y * w) + x] & 0xff;
+
+                        // the pixel is darker than its neighborhood iff value / 255 < sum / (255 * count)
+                        long diff = ((long) value * count) - sum;
+                        boolean dark;
+                        if (Math.abs(diff) > Photo.roundingMargin(count)) {
+                            dark = diff < 0;
+                        } else {
+                            dark = Photo.BRIGHTNESS[value] < Photo.neighborhoodAverage(source, w, h, x, y, r);
                         }
-                        /********/
-                        // else {
-                        // neighborhood += stat.average;
-                        // count++;
-                        // }
-                        /********/
+                        destination[(y * w) + x] = dark ? 0 : (byte) 255;
                     }
                 }
-                neighborhood /= count;
-                //
-                if (destinationArray[x][y] < neighborhood) {
-                    destinationArray[x][y] = 0f;
-                } else {
-                    destinationArray[x][y] = 1f;
+            }
+        });
+        this.setLuma(destination, w, h);
+    }
+
+    /**
+     * Largest difference {@code value * count - sum} (in luma units) for which a floating point summation of
+     * {@code count} brightness values can decide a comparison against their average differently than exact arithmetic.
+     * The accumulated rounding error of such a sum is bounded by {@code (count + 3) * 2^-24} relative to the average.
+     *
+     * @param count number of summed values
+     * @return the margin
+     */
+    private static double roundingMargin(int count) {
+        return (255.0 * count * (count + 4)) / (1 << 24);
+    }
+
+    /**
+     * Average brightness of the neighborhood of a pixel, summed in floating point in the order the original
+     * thresholding did. Used to decide the pixels whose brightness is (nearly) equal to the average of their
+     * neighborhood.
+     */
+    private static float neighborhoodAverage(byte[] source, int w, int h, int x, int y, int radius) {
+        int count = 0;
+        float neighborhood = 0;
+        for (int ix = x - radius; ix <= (x + radius); ix++) {
+            for (int iy = y - radius; iy <= (y + radius); iy++) {
+                if ((ix >= 0) && (iy >= 0) && (ix < w) && (iy < h)) {
+                    neighborhood += Photo.BRIGHTNESS[source[(iy * w) + ix] & 0xff];
+                    count++;
                 }
             }
         }
-        this.image = Photo.arrayToBufferedImage(destinationArray, w, h);
+        return neighborhood / count;
     }
 
     public HoughTransformation getHoughTransformation() {
@@ -483,7 +994,9 @@ public class Photo implements AutoCloseable {
 
     @Override
     public void close() {
-        this.image.flush();
+        if (this.image != null) {
+            this.image.flush();
+        }
     }
 
 }
\ No newline at end of file
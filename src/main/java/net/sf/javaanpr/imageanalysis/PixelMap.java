@@ -238,10 +238,14 @@ public class PixelMap {
         this.height = bi.getHeight();
 
         this.matrix = new boolean[this.width][this.height];
+        ImageRegion region = bi.getRegion();
+        byte[] luma = region.getData();
+        int offset = region.getOffset();
+        int stride = region.getStride();
 
         for (int x = 0; x < this.width; x++) {
             for (int y = 0; y < this.height; y++) {
-                this.matrix[x][y] = bi.getBrightness(x, y) < 0.5;
+                this.matrix[x][y] = Photo.BRIGHTNESS[luma[offset + (y * stride) + x] & 0xff] < 0.5;
             }
         }
     }
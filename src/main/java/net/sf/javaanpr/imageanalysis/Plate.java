@@ -67,6 +67,7 @@ for more info about JavaANPR.
 
 package net.sf.javaanpr.imageanalysis;
 
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
 import java.awt.image.ConvolveOp;
 import java.awt.image.Kernel;
@@ -83,18 +84,37 @@ public class Plate extends Photo {
         "platehorizontalgraph_detectionType");
 
     private PlateGraph graphHandle = null;
-    public Plate plateCopy;
+
+    // images derived from the plate, computed on first use
+    private Plate plateCopy = null; // thresholded
+    private BufferedImage plateCopySource; // the plate as it was before normalize cropped it
+    private ImageRegion plateCopySourceRegion; // luma plane of plateCopySource, if known
+    private Rectangle plateCopyBounds = null; // crop of the thresholded copy, relative to plateCopySource
+    private Photo horizontalEdges = null;
 
     public Plate(BufferedImage bi) {
         super(bi);
-        this.plateCopy = new Plate(Photo.duplicateBufferedImage(this.image), true);
-        this.plateCopy.adaptiveThresholding();
+        this.plateCopySource = this.image;
+    }
+
+    /**
+     * @param bi the image of the plate
+     * @param region the luma plane of the image, see {@link Photo#Photo(BufferedImage, ImageRegion)}
+     */
+    public Plate(BufferedImage bi, ImageRegion region) {
+        super(bi, region);
+        this.plateCopySource = this.image;
+        this.plateCopySourceRegion = region;
     }
 
     public Plate(BufferedImage bi, boolean isCopy) {
         super(bi);
     }
 
+    private Plate(BufferedImage bi, ImageRegion region, boolean isCopy) {
+        super(bi, region);
+    }
+
     public BufferedImage renderGraph() {
         this.computeGraph();
         return this.graphHandle.renderHorizontally(this.getWidth(), 100);
@@ -105,7 +125,7 @@ public class Plate extends Photo {
             return this.graphHandle.peaks; // graf uz bol vypocitany
         }
 
-        this.graphHandle = this.histogram(this.plateCopy.getBi()); // PlateGraph graph =
+        this.graphHandle = this.histogram(this.getPlateCopy().getRegion()); // PlateGraph graph =
         // histogram(imageCopy);
         this.graphHandle.applyProbabilityDistributor(Plate.distributor);
         this.graphHandle.findPeaks(Plate.numberOfCandidates);
@@ -128,7 +148,7 @@ public class Plate extends Photo {
                 continue;
             }
             out.add(new Char(this.image.getSubimage(p.getLeft(), 0, p.getDiff(), this.image.getHeight()),
-                this.plateCopy.image.getSubimage(p.getLeft(), 0, p.getDiff(), this.image.getHeight()),
+                this.getPlateCopy().getRegion().getSubregion(p.getLeft(), 0, p.getDiff(), this.image.getHeight()),
                 new PositionInPlate(p.getLeft(), p.getRight())));
         }
 
@@ -137,14 +157,72 @@ public class Plate extends Photo {
 
     @Override
     public Plate clone() {
-        super.clone();
         return new Plate(duplicateBufferedImage(this.image));
     }
 
+    /**
+     * Returns the adaptively thresholded copy of this plate, cropped the same way as the plate by {@link #normalize()}.
+     * The thresholding is done on first use, from the plate as it was before it was cropped.
+     * <p>
+     * This replaces the public {@code plateCopy} field, which was thresholded eagerly in the constructor of every
+     * plate. Code reading the field has to call this method instead, assigning the copy is no longer supported.
+     *
+     * @return the thresholded copy, shared
+     */
+    public Plate getPlateCopy() {
+        if (this.plateCopy == null) {
+            this.plateCopy = new Plate(this.plateCopySource, this.plateCopySourceRegion, true);
+            this.plateCopy.adaptiveThresholding();
+            if (this.plateCopyBounds != null) {
+                this.plateCopy.setRegion(this.plateCopy.getRegion().getSubregion(this.plateCopyBounds.x,
+                    this.plateCopyBounds.y, this.plateCopyBounds.width, this.plateCopyBounds.height));
+            }
+        }
+        return this.plateCopy;
+    }
+
+    private void cropPlateCopy(Rectangle bounds) {
+        if (this.plateCopy != null) {
+            this.plateCopy.setRegion(this.plateCopy.getRegion().getSubregion(bounds.x, bounds.y, bounds.width,
+                bounds.height));
+        } else {
+            // the thresholded copy is cropped when it is computed, but the bounds are checked now
+            Rectangle current = this.plateCopyBounds;
+            if (current == null) {
+                current = new Rectangle(0, 0, this.plateCopySource.getWidth(), this.plateCopySource.getHeight());
+            }
+            if ((bounds.x < 0) || (bounds.y < 0) || (bounds.width < 0) || (bounds.height < 0)
+                || ((bounds.x + bounds.width) > current.width) || ((bounds.y + bounds.height) > current.height)) {
+                throw new IllegalArgumentException("Crop " + bounds + " is outside of the thresholded plate "
+                    + current.width + "x" + current.height);
+            }
+            this.plateCopyBounds = new Rectangle(current.x + bounds.x, current.y + bounds.y, bounds.width,
+                bounds.height);
+        }
+    }
+
+    /**
+     * Returns the plate filtered by the horizontal edge detector (see {@link #horizontalEdgeDetector(BufferedImage)}),
+     * used for skew detection. The result is computed on first use and kept until the plate is cropped.
+     *
+     * @return the filtered plate as a grayscale photo, shared
+     */
+    public Photo getHorizontalEdges() {
+        if (this.horizontalEdges == null) {
+            ProjectionProfile pixels = new ProjectionProfile(this.image);
+            this.horizontalEdges = new Photo(pixels.filteredLuma(ProjectionProfile.Filter.HORIZONTAL_SOBEL),
+                pixels.getWidth(), pixels.getHeight());
+        }
+        return this.horizontalEdges;
+    }
+
     public void horizontalEdgeBi(BufferedImage image) {
         BufferedImage imageCopy = Photo.duplicateBufferedImage(image);
         float data[] = { -1, 0, 1 };
         new ConvolveOp(new Kernel(1, 3, data), ConvolveOp.EDGE_NO_OP, null).filter(imageCopy, image);
+        if (image == this.image) {
+            this.invalidateLuma();
+        }
     }
 
     public void normalize() {
@@ -156,73 +234,62 @@ public class Plate extends Photo {
         // naklonovaneho
         // obrazka, ktory je prahovany
 
-        Plate clone1 = this.clone();
-        clone1.verticalEdgeDetector(clone1.getBi());
-        PlateVerticalGraph vertical = clone1.histogramYaxis(clone1.getBi());
-        this.image = this.cutTopBottom(this.image, vertical);
-        this.plateCopy.image = this.cutTopBottom(this.plateCopy.image, vertical);
-
-        Plate clone2 = this.clone();
-        if (Plate.horizontalDetectionType == 1) {
-            clone2.horizontalEdgeDetector(clone2.getBi());
+        // the edge detectors are fused with the projections, so no clone is needed
+        PlateVerticalGraph vertical = new PlateVerticalGraph(this);
+        vertical.addPeaks(new ProjectionProfile(this.image).rowSums(ProjectionProfile.Filter.VERTICAL_EDGES, 0));
+        Rectangle bounds = this.cutTopBottom(vertical);
+        this.crop(bounds.x, bounds.y, bounds.width, bounds.height);
+        this.cropPlateCopy(this.cutTopBottom(vertical));
+
+        PlateHorizontalGraph horizontal = new PlateHorizontalGraph(this);
+        horizontal.addPeaks(new ProjectionProfile(this.image).columnSums(
+            Plate.horizontalDetectionType == 1 ? ProjectionProfile.Filter.HORIZONTAL_SOBEL
+                : ProjectionProfile.Filter.NONE, 0));
+        bounds = this.cutLeftRight(horizontal);
+        if (bounds != null) {
+            this.crop(bounds.x, bounds.y, bounds.width, bounds.height);
+        }
+        bounds = this.cutLeftRight(horizontal);
+        if (bounds != null) {
+            this.cropPlateCopy(bounds);
         }
-        PlateHorizontalGraph horizontal = clone1.histogramXaxis(clone2.getBi());
-        this.image = this.cutLeftRight(this.image, horizontal);
-        this.plateCopy.image = this.cutLeftRight(this.plateCopy.image, horizontal);
+        this.horizontalEdges = null;
 
     }
 
-    private BufferedImage cutTopBottom(BufferedImage origin, PlateVerticalGraph graph) {
+    // the plate and its thresholded copy are cut with separate calls, every call smooths the graph once more
+    private Rectangle cutTopBottom(PlateVerticalGraph graph) {
         graph.applyProbabilityDistributor(new Graph.ProbabilityDistributor(0f, 0f, 2, 2));
         Graph.Peak p = graph.findPeak(3).elementAt(0);
-        return origin.getSubimage(0, p.getLeft(), this.image.getWidth(), p.getDiff());
+        return new Rectangle(0, p.getLeft(), this.image.getWidth(), p.getDiff());
     }
 
-    private BufferedImage cutLeftRight(BufferedImage origin, PlateHorizontalGraph graph) {
+    private Rectangle cutLeftRight(PlateHorizontalGraph graph) {
         graph.applyProbabilityDistributor(new Graph.ProbabilityDistributor(0f, 0f, 2, 2));
         Vector<Graph.Peak> peaks = graph.findPeak(3);
 
         if (peaks.size() != 0) {
             Graph.Peak p = peaks.elementAt(0);
-            return origin.getSubimage(p.getLeft(), 0, p.getDiff(), this.image.getHeight());
+            return new Rectangle(p.getLeft(), 0, p.getDiff(), this.image.getHeight());
         }
-        return origin;
+        return null;
     }
 
     public PlateGraph histogram(BufferedImage bi) {
-        PlateGraph graph = new PlateGraph(this);
-        for (int x = 0; x < bi.getWidth(); x++) {
-            float counter = 0;
-            for (int y = 0; y < bi.getHeight(); y++) {
-                counter += Photo.getBrightness(bi, x, y);
-            }
-            graph.addPeak(counter);
-        }
-        return graph;
-    }
-
-    private PlateVerticalGraph histogramYaxis(BufferedImage bi) {
-        PlateVerticalGraph graph = new PlateVerticalGraph(this);
-        int w = bi.getWidth();
-        int h = bi.getHeight();
-        for (int y = 0; y < h; y++) {
-            float counter = 0;
-            for (int x = 0; x < w; x++) {
-                counter += Photo.getBrightness(bi, x, y);
-            }
-            graph.addPeak(counter);
-        }
-        return graph;
+        return this.histogram(new ImageRegion(Photo.computeLuma(bi), bi.getWidth(), bi.getHeight()));
     }
 
-    private PlateHorizontalGraph histogramXaxis(BufferedImage bi) {
-        PlateHorizontalGraph graph = new PlateHorizontalGraph(this);
-        int w = bi.getWidth();
-        int h = bi.getHeight();
+    private PlateGraph histogram(ImageRegion region) {
+        PlateGraph graph = new PlateGraph(this);
+        byte[] luma = region.getData();
+        int offset = region.getOffset();
+        int stride = region.getStride();
+        int w = region.getWidth();
+        int h = region.getHeight();
         for (int x = 0; x < w; x++) {
             float counter = 0;
             for (int y = 0; y < h; y++) {
-                counter += Photo.getBrightness(bi, x, y);
+                counter += Photo.BRIGHTNESS[luma[offset + (y * stride) + x] & 0xff];
             }
             graph.addPeak(counter);
         }
@@ -237,6 +304,9 @@ public class Plate extends Photo {
         BufferedImage destination = Photo.duplicateBufferedImage(source);
 
         new ConvolveOp(new Kernel(3, 1, matrix), ConvolveOp.EDGE_NO_OP, null).filter(destination, source);
+        if (source == this.image) {
+            this.invalidateLuma();
+        }
 
     }
 
@@ -246,6 +316,9 @@ public class Plate extends Photo {
         float matrix[] = { -1, -2, -1, 0, 0, 0, 1, 2, 1 };
 
         new ConvolveOp(new Kernel(3, 3, matrix), ConvolveOp.EDGE_NO_OP, null).filter(destination, source);
+        if (source == this.image) {
+            this.invalidateLuma();
+        }
     }
 
     public float getCharsWidthDispersion(Vector<Char> chars) {
@@ -88,9 +88,9 @@ public class PlateGraph extends Graph {
     }
 
     public class SpaceComparer implements Comparator<Object> {
-        Vector<Float> yValues = null;
+        float[] yValues = null;
 
-        public SpaceComparer(Vector<Float> yValues) {
+        public SpaceComparer(float[] yValues) {
             this.yValues = yValues;
         }
 
@@ -123,11 +123,9 @@ public class PlateGraph extends Graph {
 
         float diffGVal = (2 * this.getAverageValue()) - this.getMaxValue();
 
-        Vector<Float> yValuesNew = new Vector<Float>();
-        for (Float f : this.yValues) {
-            yValuesNew.add(f.floatValue() - diffGVal);
+        for (int i = 0; i < this.size; i++) {
+            this.yValues[i] -= diffGVal;
         }
-        this.yValues = yValuesNew;
 
         this.deActualizeFlags();
         // end
@@ -135,14 +133,14 @@ public class PlateGraph extends Graph {
         for (int c = 0; c < count; c++) { // for count
             float maxValue = 0.0f;
             int maxIndex = 0;
-            for (int i = 0; i < this.yValues.size(); i++) { // zlava doprava
+            for (int i = 0; i < this.size; i++) { // zlava doprava
                 if (this.allowedInterval(spacesTemp, i)) { // ak potencialny vrchol
                                                            // sa nachadza vo
                                                            // "volnom" intervale,
                                                            // ktory nespada pod ine
                                                            // vrcholy
-                    if (this.yValues.elementAt(i) >= maxValue) {
-                        maxValue = this.yValues.elementAt(i);
+                    if (this.yValues[i] >= maxValue) {
+                        maxValue = this.yValues[i];
                         maxIndex = i;
                     }
                 }
@@ -150,7 +148,7 @@ public class PlateGraph extends Graph {
               // nasli sme najvacsi peak
               // 0.75 mensie cislo znamena tendenciu znaky sekat, vacsie cislo
               // zase tendenciu nespravne zdruzovat
-            if (this.yValues.elementAt(maxIndex) < (PlateGraph.plategraph_rel_minpeaksize * this.getMaxValue())) {
+            if (this.yValues[maxIndex] < (PlateGraph.plategraph_rel_minpeaksize * this.getMaxValue())) {
                 break;
             }
 
@@ -160,7 +158,7 @@ public class PlateGraph extends Graph {
             // medzery
             int rightIndex = this.indexOfRightPeakRel(maxIndex, PlateGraph.peakFootConstant);
 
-            spacesTemp.add(new Peak(Math.max(0, leftIndex), maxIndex, Math.min(this.yValues.size() - 1, rightIndex)));
+            spacesTemp.add(new Peak(Math.max(0, leftIndex), maxIndex, Math.min(this.size - 1, rightIndex)));
         } // end for count
 
         // treba filtrovat kandidatov, ktory nezodpovedaju proporciam MEDZERY
@@ -217,7 +215,7 @@ public class PlateGraph extends Graph {
 
         // znak ktory je napravo od poslednej medzery :
         if (spaces.size() != 0) {
-            Peak last = new Peak(spaces.elementAt(spaces.size() - 1).getCenter(), this.yValues.size() - 1);
+            Peak last = new Peak(spaces.elementAt(spaces.size() - 1).getCenter(), this.size - 1);
             if (last.getDiff() > 0) {
                 chars.add(last);
             }
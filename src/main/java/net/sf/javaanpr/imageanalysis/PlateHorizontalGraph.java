@@ -89,7 +89,7 @@ public class PlateHorizontalGraph extends Graph {
     }
 
     public float derivation(int index1, int index2) {
-        return this.yValues.elementAt(index1) - this.yValues.elementAt(index2);
+        return this.yValues[index1] - this.yValues[index2];
     }
 
     public Vector<Peak> findPeak(int count) {
@@ -103,10 +103,10 @@ public class PlateHorizontalGraph extends Graph {
         int a, b;
         float maxVal = this.getMaxValue();
 
-        for (a = 2; (-this.derivation(a, a + 4) < (maxVal * 0.2)) && (a < (this.yValues.size() - 2 - 2 - 4)); a++) {
+        for (a = 2; (-this.derivation(a, a + 4) < (maxVal * 0.2)) && (a < (this.size - 2 - 2 - 4)); a++) {
 
         }
-        for (b = this.yValues.size() - 1 - 2; (this.derivation(b - 4, b) < (maxVal * 0.2)) && (b > (a + 2)); b--) {
+        for (b = this.size - 1 - 2; (this.derivation(b - 4, b) < (maxVal * 0.2)) && (b > (a + 2)); b--) {
 
         }
 
@@ -120,16 +120,16 @@ public class PlateHorizontalGraph extends Graph {
     public Vector<Peak> findPeak_edgedetection(int count) {
         float average = this.getAverageValue();
         int a, b;
-        for (a = 0; this.yValues.elementAt(a) < average; a++) {
+        for (a = 0; this.yValues[a] < average; a++) {
 
         }
-        for (b = this.yValues.size() - 1; this.yValues.elementAt(b) < average; b--) {
+        for (b = this.size - 1; this.yValues[b] < average; b--) {
 
         }
 
         Vector<Peak> outPeaks = new Vector<>();
         a = Math.max(a - 5, 0);
-        b = Math.min(b + 5, this.yValues.size());
+        b = Math.min(b + 5, this.size);
 
         outPeaks.add(new Peak(a, b));
         super.peaks = outPeaks;
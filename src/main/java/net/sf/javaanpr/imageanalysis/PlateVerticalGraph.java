@@ -96,7 +96,7 @@ public class PlateVerticalGraph extends Graph {
             // return ((Peak)peak).getDiff();
 
             // vyska peaku
-            return this.graphHandle.yValues.elementAt(((Peak) peak).getCenter());
+            return this.graphHandle.yValues[((Peak) peak).getCenter()];
 
             // heuristika :
             // ako daleko od stredu je kandidat
@@ -121,8 +121,9 @@ public class PlateVerticalGraph extends Graph {
     public Vector<Peak> findPeak(int count) {
 
         // znizime peak
-        for (int i = 0; i < this.yValues.size(); i++) {
-            this.yValues.set(i, this.yValues.elementAt(i) - this.getMinValue());
+        float minValue = this.getMinValue();
+        for (int i = 0; i < this.size; i++) {
+            this.yValues[i] -= minValue;
         }
 
         Vector<Peak> outPeaks = new Vector<Peak>();
@@ -130,27 +131,27 @@ public class PlateVerticalGraph extends Graph {
         for (int c = 0; c < count; c++) { // for count
             float maxValue = 0.0f;
             int maxIndex = 0;
-            for (int i = 0; i < this.yValues.size(); i++) { // zlava doprava
+            for (int i = 0; i < this.size; i++) { // zlava doprava
                 if (this.allowedInterval(outPeaks, i)) { // ak potencialny vrchol sa
                     // nachadza vo "volnom"
                     // intervale, ktory nespada
                     // pod ine vrcholy
-                    if (this.yValues.elementAt(i) >= maxValue) {
-                        maxValue = this.yValues.elementAt(i);
+                    if (this.yValues[i] >= maxValue) {
+                        maxValue = this.yValues[i];
                         maxIndex = i;
                     }
                 }
             } // end for int 0->max
               // nasli sme najvacsi peak
 
-            if (this.yValues.elementAt(maxIndex) < (0.05 * super.getMaxValue())) {
+            if (this.yValues[maxIndex] < (0.05 * super.getMaxValue())) {
                 break;// 0.4
             }
 
             int leftIndex = this.indexOfLeftPeakRel(maxIndex, PlateVerticalGraph.peakFootConstant);
             int rightIndex = this.indexOfRightPeakRel(maxIndex, PlateVerticalGraph.peakFootConstant);
 
-            outPeaks.add(new Peak(Math.max(0, leftIndex), maxIndex, Math.min(this.yValues.size() - 1, rightIndex)));
+            outPeaks.add(new Peak(Math.max(0, leftIndex), maxIndex, Math.min(this.size - 1, rightIndex)));
         }
 
         Collections.sort(outPeaks, new PeakComparer(this));
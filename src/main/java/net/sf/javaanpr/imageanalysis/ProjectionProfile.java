@@ -0,0 +1,452 @@
+/*
+------------------------------------------------------------------------
+JavaANPR - Automatic Number Plate Recognition System for Java
+------------------------------------------------------------------------
+
+This file is a part of the JavaANPR, licensed under the terms of the
+Educational Community License
+
+Copyright (c) 2006-2007 Ondrej Martinsky. All rights reserved
+
+This Original Work, including software, source code, documents, or
+other related items, is being provided by the copyright holder(s)
+subject to the terms of the Educational Community License. By
+obtaining, using and/or copying this Original Work, you agree that you
+have read, understand, and will comply with the following terms and
+conditions of the Educational Community License:
+
+Permission to use, copy, modify, merge, publish, distribute, and
+sublicense this Original Work and its documentation, with or without
+modification, for any purpose, and without fee or royalty to the
+copyright holder(s) is hereby granted, provided that you include the
+following on ALL copies of the Original Work or portions thereof,
+including modifications or derivatives, that you make:
+
+# The full text of the Educational Community License in a location
+viewable to users of the redistributed or derivative work.
+
+# Any pre-existing intellectual property disclaimers, notices, or terms
+and conditions.
+
+# Notice of any changes or modifications to the Original Work,
+including the date the changes were made.
+
+# Any modifications of the Original Work must be distributed in such a
+manner as to avoid any confusion with the Original Work of the
+copyright holders.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+The name and trademarks of copyright holder(s) may NOT be used in
+advertising or publicity pertaining to the Original or Derivative Works
+without specific, written prior permission. Title to copyright in the
+Original Work and any associated documentation will at all times remain
+with the copyright holders.
+
+If you want to alter upon this work, you MUST attribute it in
+a) all source files
+b) on every place, where is the copyright of derivated work
+exactly by the following label :
+
+---- label begin ----
+This work is a derivate of the JavaANPR. JavaANPR is a intellectual
+property of Ondrej Martinsky. Please visit http://javaanpr.sourceforge.net
+for more info about JavaANPR.
+----  label end  ----
+
+------------------------------------------------------------------------
+                                         http://javaanpr.sourceforge.net
+------------------------------------------------------------------------
+ */
+
+package net.sf.javaanpr.imageanalysis;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.util.Arrays;
+
+/**
+ * Computes projection profiles (brightness sums of rows or columns) of an image in a single streaming pass over its
+ * packed RGB pixels. An edge filter and a threshold can be applied on the fly, so no intermediate image is created.
+ * <p>
+ * The filters reproduce {@link java.awt.image.ConvolveOp} with {@code EDGE_NO_OP} followed by
+ * {@link Photo#getBrightness(BufferedImage, int, int)}: the kernel is applied to every RGB channel separately, the
+ * channels are clamped to 0..255 and the brightness is the largest of them. Pixels the kernel does not fit on are taken
+ * from the source unchanged. The profiles are therefore identical to the ones computed from the filtered images.
+ */
+public class ProjectionProfile {
+    public enum Filter {
+        /** no filtering, brightness of the source */
+        NONE,
+        /** 3x4 vertical edge detector used to find bands in a car snapshot, see {@link CarSnapshot#verticalEdgeBi} */
+        SNAPSHOT_VERTICAL_EDGES,
+        /** sum of the vertical and horizontal 3x3 Sobel operators, see {@link Band#fullEdgeDetector} */
+        SOBEL,
+        /** 3x1 vertical edge detector, see {@link Plate#verticalEdgeDetector} */
+        VERTICAL_EDGES,
+        /** 3x3 horizontal Sobel operator, see {@link Plate#horizontalEdgeDetector} */
+        HORIZONTAL_SOBEL
+    }
+
+    /** row buffers reused by every profile computed on the same thread */
+    private static final ThreadLocal<int[][]> scratchRows = new ThreadLocal<int[][]>() {
+        @Override
+        protected int[][] initialValue() {
+            return new int[3][0];
+        }
+    };
+
+    /* rows above and below a filtered row the filters read */
+    private static final int CONTEXT = 2;
+
+    private final Kernels kernels = Kernels.getKernels();
+    private final BufferedImage image;
+    private final boolean direct;
+    private final ImageRegion plane;
+    private final int[] data;
+    private int offset;
+    private final int stride;
+    private final int width;
+    private final int height;
+    /* rows of the image held in data, all of them unless the image is read in strips */
+    private int stripTop;
+    private int stripBottom;
+
+    public ProjectionProfile(BufferedImage image) {
+        this(image, 0);
+    }
+
+    /**
+     * Creates a profile of an image. Images that cannot be read directly from their data buffer are converted to
+     * packed RGB pixels; with a strip height, only a strip of rows (and the rows around it the filters need) is
+     * converted at a time, so the memory needed does not grow with the height of the image.
+     *
+     * @param image the image
+     * @param stripHeight the number of rows converted at a time, 0 to convert the whole image at once
+     */
+    public ProjectionProfile(BufferedImage image, int stripHeight) {
+        this.image = image;
+        this.width = image.getWidth();
+        this.height = image.getHeight();
+        WritableRaster raster = image.getRaster();
+        if ((raster.getDataBuffer() instanceof DataBufferInt)
+            && (raster.getSampleModel() instanceof SinglePixelPackedSampleModel)
+            && ProjectionProfile.isPackedRgb((SinglePixelPackedSampleModel) raster.getSampleModel())) {
+            SinglePixelPackedSampleModel sm = (SinglePixelPackedSampleModel) raster.getSampleModel();
+            this.data = ((DataBufferInt) raster.getDataBuffer()).getData();
+            this.stride = sm.getScanlineStride();
+            this.offset = raster.getDataBuffer().getOffset()
+                + sm.getOffset(-raster.getSampleModelTranslateX(), -raster.getSampleModelTranslateY());
+            this.direct = true;
+            this.plane = null;
+            this.stripTop = 0;
+            this.stripBottom = this.height;
+            return;
+        }
+        // a plane of a raw frame is expanded to gray pixels
+        this.plane = RawFrame.lumaView(image);
+        int rows = this.height;
+        if ((stripHeight > 0) && ((stripHeight + (2 * ProjectionProfile.CONTEXT)) < this.height)) {
+            rows = stripHeight + (2 * ProjectionProfile.CONTEXT);
+        }
+        this.data = RecognitionContext.get().getInts(this.width * rows);
+        this.stride = this.width;
+        this.direct = false;
+        this.loadStrip(0, rows);
+    }
+
+    /**
+     * Converts the rows {@code top..top+rows-1} of the image to packed RGB pixels.
+     */
+    private void loadStrip(int top, int rows) {
+        int bottom = Math.min(this.height, top + rows);
+        if (this.plane != null) {
+            for (int y = top; y < bottom; y++) {
+                int row = (y - top) * this.width;
+                for (int x = 0; x < this.width; x++) {
+                    this.data[row + x] = Photo.grayRgb(this.plane.getLuma(x, y));
+                }
+            }
+        } else if (bottom > top) {
+            this.image.getRGB(0, top, this.width, bottom - top, this.data, 0, this.width);
+        }
+        this.stripTop = top;
+        this.stripBottom = bottom;
+        this.offset = -top * this.width;
+    }
+
+    /**
+     * Makes sure the rows a filter reads around the given row are converted, the rows are read from top to bottom.
+     */
+    private void ensureRows(int y) {
+        int top = Math.max(0, y - ProjectionProfile.CONTEXT);
+        int bottom = Math.min(this.height, y + ProjectionProfile.CONTEXT + 1);
+        if ((top < this.stripTop) || (bottom > this.stripBottom)) {
+            this.loadStrip(top, this.data.length / this.width);
+        }
+    }
+
+    static boolean isPackedRgb(SinglePixelPackedSampleModel sm) {
+        int[] masks = sm.getBitMasks();
+        if (masks.length < 3) {
+            return false;
+        }
+        for (int i = 0; i < 3; i++) {
+            if ((masks[i] != 0xff0000) && (masks[i] != 0xff00) && (masks[i] != 0xff)) {
+                return false;
+            }
+        }
+        return (masks[0] | masks[1] | masks[2]) == 0xffffff;
+    }
+
+    /**
+     * Returns a row buffer of at least {@code width} elements owned by the current thread. The contents are undefined.
+     *
+     * @param index 0 to 2, buffers with different indices can be used at the same time
+     * @param width the required length
+     * @return the buffer
+     */
+    static int[] scratchRow(int index, int width) {
+        int[][] rows = ProjectionProfile.scratchRows.get();
+        if (rows[index].length < width) {
+            rows[index] = new int[width];
+        }
+        return rows[index];
+    }
+
+    public int getWidth() {
+        return this.width;
+    }
+
+    public int getHeight() {
+        return this.height;
+    }
+
+    /**
+     * Runs a loop over all rows, in parallel if the image is large and its pixels are not read in strips.
+     */
+    private void forEachRow(ParallelRows.Body body) {
+        if ((this.stripTop == 0) && (this.stripBottom == this.height)) {
+            ParallelRows.forEach(this.height, (long) this.width * this.height, body);
+        } else {
+            body.run(0, this.height);
+        }
+    }
+
+    /**
+     * Sums the brightness of every row of the filtered image.
+     *
+     * @param filter the edge filter
+     * @param threshold filtered pixels with luma lower than this are counted as black
+     * @return {@code height} sums, every one accumulated from left to right
+     */
+    public float[] rowSums(final Filter filter, final int threshold) {
+        final float[] sums = new float[this.height];
+        this.forEachRow(new ParallelRows.Body() {
+            @Override
+            public void run(int from, int to) {
+                int[] row = ProjectionProfile.scratchRow(0, ProjectionProfile.this.width);
+                for (int y = from; y < to; y++) {
+                    ProjectionProfile.this.filterRow(filter, y, row);
+                    sums[y] = ProjectionProfile.this.kernels.sumRow(row, ProjectionProfile.this.width, threshold);
+                }
+            }
+        });
+        return sums;
+    }
+
+    /**
+     * Sums the brightness of every row of the filtered image within spans of columns, pixels outside of the spans are
+     * counted as black. Rows without a span are not filtered at all.
+     *
+     * @param filter the edge filter
+     * @param threshold filtered pixels with luma lower than this are counted as black
+     * @param spans the spans of every row, pairs of the first column and the column after the last one, from left to
+     *            right, see {@link RegionOfInterest#getRowSpans(int, int, int, int)}
+     * @return {@code height} sums, every one accumulated from left to right
+     */
+    public float[] rowSums(final Filter filter, final int threshold, final int[][] spans) {
+        final float[] sums = new float[this.height];
+        this.forEachRow(new ParallelRows.Body() {
+            @Override
+            public void run(int from, int to) {
+                int w = ProjectionProfile.this.width;
+                int[] row = ProjectionProfile.scratchRow(0, w);
+                for (int y = from; y < to; y++) {
+                    int[] span = spans[y];
+                    if (span.length == 0) {
+                        continue;
+                    }
+                    ProjectionProfile.this.filterRow(filter, y, row);
+                    int outside = 0; // the first column after the previous span
+                    for (int i = 0; i < span.length; i += 2) {
+                        Arrays.fill(row, outside, span[i], 0);
+                        outside = span[i + 1];
+                    }
+                    Arrays.fill(row, outside, w, 0);
+                    sums[y] = ProjectionProfile.this.kernels.sumRow(row, w, threshold);
+                }
+            }
+        });
+        return sums;
+    }
+
+    /**
+     * Sums the brightness of every column of the filtered image.
+     *
+     * @param filter the edge filter
+     * @param threshold filtered pixels with luma lower than this are counted as black
+     * @return {@code width} sums, every one accumulated from top to bottom
+     */
+    public float[] columnSums(Filter filter, int threshold) {
+        float[] sums = new float[this.width];
+        int[] row = ProjectionProfile.scratchRow(0, this.width);
+        if (ParallelRows.isParallel((long) this.width * this.height) && (this.stripBottom == this.height)
+            && (this.stripTop == 0)) {
+            // the rows are filtered in parallel, but summed in order, so the sums are rounded the same way
+            byte[] luma = this.filteredLuma(filter, RecognitionContext.get().getBytes(this.width * this.height));
+            for (int y = 0; y < this.height; y++) {
+                for (int x = 0; x < this.width; x++) {
+                    row[x] = luma[(y * this.width) + x] & 0xff;
+                }
+                this.kernels.accumulateColumns(sums, row, this.width, threshold);
+            }
+            return sums;
+        }
+        for (int y = 0; y < this.height; y++) {
+            this.filterRow(filter, y, row);
+            this.kernels.accumulateColumns(sums, row, this.width, threshold);
+        }
+        return sums;
+    }
+
+    /**
+     * Computes the luma plane of the filtered image.
+     *
+     * @param filter the edge filter
+     * @return the plane, {@code width * height} bytes
+     */
+    public byte[] filteredLuma(Filter filter) {
+        return this.filteredLuma(filter, new byte[this.width * this.height]);
+    }
+
+    /**
+     * Computes the luma plane of the filtered image into a given buffer.
+     *
+     * @param filter the edge filter
+     * @param luma receives the plane, at least {@code width * height} bytes
+     * @return the buffer
+     */
+    byte[] filteredLuma(final Filter filter, final byte[] luma) {
+        this.forEachRow(new ParallelRows.Body() {
+            @Override
+            public void run(int from, int to) {
+                int w = ProjectionProfile.this.width;
+                int[] row = ProjectionProfile.scratchRow(0, w);
+                for (int y = from; y < to; y++) {
+                    ProjectionProfile.this.filterRow(filter, y, row);
+                    for (int x = 0; x < w; x++) {
+                        luma[(y * w) + x] = (byte) row[x];
+                    }
+                }
+            }
+        });
+        return luma;
+    }
+
+    /**
+     * Computes the luma of one row of the filtered image.
+     *
+     * @param filter the edge filter
+     * @param y the row
+     * @param out receives {@code width} luma values
+     */
+    void filterRow(Filter filter, int y, int[] out) {
+        if (!this.direct) {
+            this.ensureRows(y);
+        }
+        int w = this.width;
+        int[] data = this.data;
+        int s = this.stride;
+        int row = this.offset + (y * s);
+
+        // rows (and columns) the kernel does not fit on are copied from the source
+        boolean edgeRow;
+        switch (filter) {
+            case SNAPSHOT_VERTICAL_EDGES:
+                edgeRow = (y < 2) || (y >= (this.height - 2)) || (w < 3);
+                break;
+            case SOBEL:
+            case HORIZONTAL_SOBEL:
+                edgeRow = (y < 1) || (y >= (this.height - 1)) || (w < 3);
+                break;
+            case VERTICAL_EDGES:
+                edgeRow = w < 3;
+                break;
+            default:
+                edgeRow = true;
+        }
+        if (edgeRow) {
+            for (int x = 0; x < w; x++) {
+                out[x] = ProjectionProfile.luma(data[row + x]);
+            }
+            if (filter == Filter.SOBEL) {
+                for (int x = 0; x < w; x++) {
+                    out[x] = ProjectionProfile.sobelMagnitude(out[x], out[x]);
+                }
+            }
+            return;
+        }
+
+        out[0] = ProjectionProfile.luma(data[row]);
+        out[w - 1] = ProjectionProfile.luma(data[(row + w) - 1]);
+        if (filter == Filter.SOBEL) {
+            out[0] = ProjectionProfile.sobelMagnitude(out[0], out[0]);
+            out[w - 1] = ProjectionProfile.sobelMagnitude(out[w - 1], out[w - 1]);
+        }
+
+        this.kernels.filterRow(filter, data, row, s, out, 1, w - 1);
+    }
+
+    /**
+     * Replaces one row of the image with gray pixels. The row must not be needed by {@link #filterRow} any more, as
+     * the pixels may be shared with the image.
+     *
+     * @param y the row
+     * @param luma {@code width} luma values
+     */
+    void writeRow(int y, int[] luma) {
+        if (this.direct) {
+            int row = this.offset + (y * this.stride);
+            for (int x = 0; x < this.width; x++) {
+                this.data[row + x] = Photo.grayRgb(luma[x]);
+            }
+        } else {
+            int[] rgb = ProjectionProfile.scratchRow(2, this.width);
+            for (int x = 0; x < this.width; x++) {
+                rgb[x] = Photo.grayRgb(luma[x]);
+            }
+            this.image.setRGB(0, y, this.width, 1, rgb, 0, this.width);
+        }
+    }
+
+    /** brightness sum of the two Sobel responses, saturated at 1 and quantized to luma */
+    static int sobelMagnitude(int vertical, int horizontal) {
+        float sum = 0.0f;
+        sum += Photo.BRIGHTNESS[vertical];
+        sum += Photo.BRIGHTNESS[horizontal];
+        return Photo.toLuma(Math.min(1.0f, sum));
+    }
+
+    static int luma(int rgb) {
+        return Math.max((rgb >> 16) & 0xff, Math.max((rgb >> 8) & 0xff, rgb & 0xff));
+    }
+}
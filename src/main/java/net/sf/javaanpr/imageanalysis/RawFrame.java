@@ -0,0 +1,289 @@
+/*
+------------------------------------------------------------------------
+JavaANPR - Automatic Number Plate Recognition System for Java
+------------------------------------------------------------------------
+
+This file is a part of the JavaANPR, licensed under the terms of the
+Educational Community License
+
+Copyright (c) 2006-2007 Ondrej Martinsky. All rights reserved
+
+This Original Work, including software, source code, documents, or
+other related items, is being provided by the copyright holder(s)
+subject to the terms of the Educational Community License. By
+obtaining, using and/or copying this Original Work, you agree that you
+have read, understand, and will comply with the following terms and
+conditions of the Educational Community License:
+
+Permission to use, copy, modify, merge, publish, distribute, and
+sublicense this Original Work and its documentation, with or without
+modification, for any purpose, and without fee or royalty to the
+copyright holder(s) is hereby granted, provided that you include the
+following on ALL copies of the Original Work or portions thereof,
+including modifications or derivatives, that you make:
+
+# The full text of the Educational Community License in a location
+viewable to users of the redistributed or derivative work.
+
+# Any pre-existing intellectual property disclaimers, notices, or terms
+and conditions.
+
+# Notice of any changes or modifications to the Original Work,
+including the date the changes were made.
+
+# Any modifications of the Original Work must be distributed in such a
+manner as to avoid any confusion with the Original Work of the
+copyright holders.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+The name and trademarks of copyright holder(s) may NOT be used in
+advertising or publicity pertaining to the Original or Derivative Works
+without specific, written prior permission. Title to copyright in the
+Original Work and any associated documentation will at all times remain
+with the copyright holders.
+
+If you want to alter upon this work, you MUST attribute it in
+a) all source files
+b) on every place, where is the copyright of derivated work
+exactly by the following label :
+
+---- label begin ----
+This work is a derivate of the JavaANPR. JavaANPR is a intellectual
+property of Ondrej Martinsky. Please visit http://javaanpr.sourceforge.net
+for more info about JavaANPR.
+----  label end  ----
+
+------------------------------------------------------------------------
+                                         http://javaanpr.sourceforge.net
+------------------------------------------------------------------------
+ */
+
+package net.sf.javaanpr.imageanalysis;
+
+import java.awt.Transparency;
+import java.awt.color.ColorSpace;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DirectColorModel;
+import java.awt.image.Raster;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.util.Hashtable;
+
+/**
+ * A decoded frame held in a raw pixel buffer, as delivered by a capture device.
+ * <p>
+ * {@link #toImage()} wraps the buffer in an image without copying the pixels. The luma of the byte formats is their Y
+ * (or gray) plane as it is, the image has three identical bands backed by that plane, so the analysis code reads the
+ * plane directly. The chroma planes of the YUV formats are only converted for the small regions whose color is needed,
+ * see {@link Photo#colorPixels(BufferedImage)}. The buffer must not be modified while the image is in use.
+ */
+public class RawFrame {
+    public enum Format {
+        /** packed 32-bit pixels {@code 0xAARRGGBB}, the alpha is ignored */
+        ARGB,
+        /** 8-bit gray plane */
+        GRAY,
+        /** Y plane followed by one plane of interleaved U and V samples subsampled 2x2, with the stride of Y */
+        NV12,
+        /** Y plane followed by the U and V planes subsampled 2x2, with half the stride of Y each */
+        I420
+    }
+
+    private final Format format;
+    private final int[] ints;
+    private final byte[] bytes;
+    private final int offset;
+    private final int width;
+    private final int height;
+    private final int stride;
+
+    /**
+     * Describes a frame of packed ARGB pixels.
+     *
+     * @param argb the buffer
+     * @param offset index of the top left pixel
+     * @param width width of the frame
+     * @param height height of the frame
+     * @param stride distance between vertically adjacent pixels
+     * @throws IllegalArgumentException if the frame does not fit into the buffer
+     */
+    public RawFrame(int[] argb, int offset, int width, int height, int stride) {
+        this(Format.ARGB, argb, null, argb.length, offset, width, height, stride);
+    }
+
+    /**
+     * Describes a frame of one of the byte formats.
+     *
+     * @param data the buffer
+     * @param offset index of the top left pixel of the Y (or gray) plane
+     * @param width width of the frame
+     * @param height height of the frame
+     * @param stride distance between vertically adjacent pixels of the Y plane
+     * @param format {@link Format#GRAY}, {@link Format#NV12} or {@link Format#I420}
+     * @throws IllegalArgumentException if the format is not a byte format or the frame does not fit into the buffer
+     */
+    public RawFrame(byte[] data, int offset, int width, int height, int stride, Format format) {
+        this(format, null, data, data.length, offset, width, height, stride);
+        if (format == Format.ARGB) {
+            throw new IllegalArgumentException("ARGB frames are held in int buffers");
+        }
+    }
+
+    private RawFrame(Format format, int[] ints, byte[] bytes, int length, int offset, int width, int height,
+        int stride) {
+        if ((width <= 0) || (height <= 0) || (offset < 0) || (stride < width)
+            || ((offset + RawFrame.frameLength(format, width, height, stride)) > length)) {
+            throw new IllegalArgumentException(format + " frame " + width + "x" + height + " at offset " + offset
+                + " (stride " + stride + ") does not fit into a buffer of " + length + " elements");
+        }
+        this.format = format;
+        this.ints = ints;
+        this.bytes = bytes;
+        this.offset = offset;
+        this.width = width;
+        this.height = height;
+        this.stride = stride;
+    }
+
+    /**
+     * Returns the number of elements of the buffer a frame uses, from its offset: ints for {@link Format#ARGB}, bytes
+     * otherwise. The last row of every plane ends after its last pixel, not at the stride.
+     *
+     * @param format the pixel format
+     * @param width width of the frame, positive
+     * @param height height of the frame, positive
+     * @param stride stride of the Y (or gray, or ARGB) plane
+     * @return the number of elements
+     */
+    public static long frameLength(Format format, int width, int height, int stride) {
+        long plane = ((long) (height - 1) * stride) + width;
+        long chromaRows = (height + 1) / 2;
+        switch (format) {
+            case NV12:
+                return ((long) height * stride) + ((chromaRows - 1) * stride) + (((width + 1) / 2) * 2);
+            case I420:
+                return ((long) height * stride) + (chromaRows * (stride / 2)) + ((chromaRows - 1) * (stride / 2))
+                    + ((width + 1) / 2);
+            default:
+                return plane;
+        }
+    }
+
+    public Format getFormat() {
+        return this.format;
+    }
+
+    public int getWidth() {
+        return this.width;
+    }
+
+    public int getHeight() {
+        return this.height;
+    }
+
+    /**
+     * Wraps the frame in a {@code TYPE_INT_RGB} compatible image (ARGB) or in a three band image backed by the Y plane
+     * (byte formats). The pixels are not copied.
+     *
+     * @return the image
+     */
+    public BufferedImage toImage() {
+        if (this.format == Format.ARGB) {
+            int[] masks = { 0xff0000, 0xff00, 0xff };
+            SinglePixelPackedSampleModel sm = new SinglePixelPackedSampleModel(DataBuffer.TYPE_INT, this.width,
+                this.height, this.stride, masks);
+            WritableRaster raster = Raster.createWritableRaster(sm, new DataBufferInt(this.ints, this.ints.length
+                - this.offset, this.offset), null);
+            return new BufferedImage(new DirectColorModel(24, masks[0], masks[1], masks[2]), raster, false, null);
+        }
+
+        // the three color bands all read the same sample of the plane
+        ComponentSampleModel sm = new ComponentSampleModel(DataBuffer.TYPE_BYTE, this.width, this.height, 1,
+            this.stride, new int[] { 0, 0, 0 });
+        WritableRaster raster = Raster.createWritableRaster(sm, new DataBufferByte(this.bytes, this.bytes.length
+            - this.offset, this.offset), null);
+        ColorModel cm = new ComponentColorModel(ColorSpace.getInstance(ColorSpace.CS_sRGB), false, false,
+            Transparency.OPAQUE, DataBuffer.TYPE_BYTE);
+        Hashtable<String, Object> properties = new Hashtable<String, Object>();
+        if (this.format != Format.GRAY) {
+            properties.put(Photo.YCBCR_PROPERTY, this);
+        }
+        return new BufferedImage(cm, raster, false, properties);
+    }
+
+    /**
+     * Returns the color of a pixel, the YUV formats are converted like JPEG files.
+     *
+     * @param x column
+     * @param y row
+     * @return the pixel, {@code 0xffRRGGBB}
+     */
+    public int getRgb(int x, int y) {
+        switch (this.format) {
+            case ARGB:
+                return 0xff000000 | this.ints[this.offset + (y * this.stride) + x];
+            case GRAY:
+                return Photo.grayRgb(this.bytes[this.offset + (y * this.stride) + x] & 0xff);
+            default:
+                int luma = this.bytes[this.offset + (y * this.stride) + x] & 0xff;
+                int chroma = this.offset + (this.height * this.stride);
+                int u;
+                int v;
+                if (this.format == Format.NV12) {
+                    int index = chroma + ((y / 2) * this.stride) + ((x / 2) * 2);
+                    u = this.bytes[index] & 0xff;
+                    v = this.bytes[index + 1] & 0xff;
+                } else {
+                    int chromaStride = this.stride / 2;
+                    int index = chroma + ((y / 2) * chromaStride) + (x / 2);
+                    u = this.bytes[index] & 0xff;
+                    v = this.bytes[index + (((this.height + 1) / 2) * chromaStride)] & 0xff;
+                }
+                return Photo.ycbcrToRgb(luma, u, v);
+        }
+    }
+
+    /**
+     * Returns the luma plane of an image created by {@link #toImage()} from a byte format, or of a subimage of it,
+     * without copying it.
+     *
+     * @param image the image
+     * @return the view, null if the image is not backed by a single plane
+     */
+    static ImageRegion lumaView(BufferedImage image) {
+        WritableRaster raster = image.getRaster();
+        if (!(raster.getDataBuffer() instanceof DataBufferByte)
+            || !(raster.getSampleModel() instanceof ComponentSampleModel) || (raster.getNumBands() != 3)) {
+            return null;
+        }
+        ComponentSampleModel sm = (ComponentSampleModel) raster.getSampleModel();
+        int[] bandOffsets = sm.getBandOffsets();
+        int[] bankIndices = sm.getBankIndices();
+        for (int band = 1; band < 3; band++) {
+            if ((bandOffsets[band] != bandOffsets[0]) || (bankIndices[band] != bankIndices[0])) {
+                return null;
+            }
+        }
+        if (sm.getPixelStride() != 1) {
+            return null;
+        }
+        DataBufferByte buffer = (DataBufferByte) raster.getDataBuffer();
+        int offset = buffer.getOffsets()[bankIndices[0]]
+            + sm.getOffset(-raster.getSampleModelTranslateX(), -raster.getSampleModelTranslateY());
+        return new ImageRegion(buffer.getData(bankIndices[0]), offset, sm.getScanlineStride(), image.getWidth(),
+            image.getHeight());
+    }
+}
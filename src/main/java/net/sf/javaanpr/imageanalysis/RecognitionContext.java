@@ -0,0 +1,313 @@
+/*
+------------------------------------------------------------------------
+JavaANPR - Automatic Number Plate Recognition System for Java
+------------------------------------------------------------------------
+
+This file is a part of the JavaANPR, licensed under the terms of the
+Educational Community License
+
+Copyright (c) 2006-2007 Ondrej Martinsky. All rights reserved
+
+This Original Work, including software, source code, documents, or
+other related items, is being provided by the copyright holder(s)
+subject to the terms of the Educational Community License. By
+obtaining, using and/or copying this Original Work, you agree that you
+have read, understand, and will comply with the following terms and
+conditions of the Educational Community License:
+
+Permission to use, copy, modify, merge, publish, distribute, and
+sublicense this Original Work and its documentation, with or without
+modification, for any purpose, and without fee or royalty to the
+copyright holder(s) is hereby granted, provided that you include the
+following on ALL copies of the Original Work or portions thereof,
+including modifications or derivatives, that you make:
+
+# The full text of the Educational Community License in a location
+viewable to users of the redistributed or derivative work.
+
+# Any pre-existing intellectual property disclaimers, notices, or terms
+and conditions.
+
+# Notice of any changes or modifications to the Original Work,
+including the date the changes were made.
+
+# Any modifications of the Original Work must be distributed in such a
+manner as to avoid any confusion with the Original Work of the
+copyright holders.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+The name and trademarks of copyright holder(s) may NOT be used in
+advertising or publicity pertaining to the Original or Derivative Works
+without specific, written prior permission. Title to copyright in the
+Original Work and any associated documentation will at all times remain
+with the copyright holders.
+
+If you want to alter upon this work, you MUST attribute it in
+a) all source files
+b) on every place, where is the copyright of derivated work
+exactly by the following label :
+
+---- label begin ----
+This work is a derivate of the JavaANPR. JavaANPR is a intellectual
+property of Ondrej Martinsky. Please visit http://javaanpr.sourceforge.net
+for more info about JavaANPR.
+----  label end  ----
+
+------------------------------------------------------------------------
+                                         http://javaanpr.sourceforge.net
+------------------------------------------------------------------------
+ */
+
+package net.sf.javaanpr.imageanalysis;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Per-thread pool of scratch buffers for the recognition of one frame.
+ * <p>
+ * Buffers are handed out in power-of-two size buckets. While a frame is being recognized (between {@link #begin()} and
+ * {@link #end()}), every buffer handed out is owned by the frame and returned to the pool when it ends, so a thread
+ * recognizing frames of similar size stops allocating scratch memory after the first few frames. Outside of a frame the
+ * buffers are simply allocated and left to the garbage collector.
+ * <p>
+ * Only temporaries that do not outlive the call acquiring them are pooled: the row buffers of the box downscaling and
+ * of the edge filters, summed-area tables and prefix sums, filtered planes that are consumed right away and the copies
+ * made by graph filters. Data kept by the objects of a recognition (luma planes of bands, plates and characters,
+ * thresholded regions, graph values, feature arrays) outlives the scratch buffers of a frame and is allocated normally.
+ * <p>
+ * The pool does not grow without bound. A bucket that has not been used for {@value #IDLE_FRAMES} frames is emptied, so
+ * the buffers of a single large frame are dropped once frames get small again, and the free buffers kept per thread are
+ * capped, buffers returned beyond the cap are left to the garbage collector. The cap is {@value #MAX_RETAINED} bytes,
+ * or twice the largest buffer handed out in the frame if that is more, so the summed-area tables of large frames are
+ * kept as well. Requests for more than 2^30 elements are allocated at their exact size and never pooled.
+ * <p>
+ * A scratch buffer must not be used after the frame it was acquired in has ended, it may already be handed out again.
+ * Buffers are not cleared, their contents are undefined.
+ */
+public class RecognitionContext {
+    private static final ThreadLocal<RecognitionContext> contexts = new ThreadLocal<RecognitionContext>() {
+        @Override
+        protected RecognitionContext initialValue() {
+            return new RecognitionContext();
+        }
+    };
+
+    private static final int BUCKETS = 32;
+
+    /** frames after which an unused bucket is emptied */
+    static final int IDLE_FRAMES = 16;
+
+    /** the maximal size of the free buffers of one thread in bytes, unless the frame used larger buffers */
+    static final long MAX_RETAINED = 64L * 1024 * 1024;
+
+    private final Pool<int[]> ints = new Pool<int[]>(4) {
+        @Override
+        int[] allocate(int size) {
+            return new int[size];
+        }
+
+        @Override
+        int length(int[] buffer) {
+            return buffer.length;
+        }
+    };
+
+    private final Pool<float[]> floats = new Pool<float[]>(4) {
+        @Override
+        float[] allocate(int size) {
+            return new float[size];
+        }
+
+        @Override
+        int length(float[] buffer) {
+            return buffer.length;
+        }
+    };
+
+    private final Pool<byte[]> bytes = new Pool<byte[]>(1) {
+        @Override
+        byte[] allocate(int size) {
+            return new byte[size];
+        }
+
+        @Override
+        int length(byte[] buffer) {
+            return buffer.length;
+        }
+    };
+
+    private int depth = 0;
+
+    /** the number of frames ended on this thread */
+    private long frames = 0;
+
+    /** the size of the largest buffer handed out in the current frame, in bytes */
+    private long largest = 0;
+
+    private RecognitionContext() {
+    }
+
+    /**
+     * @return the context of the current thread
+     */
+    public static RecognitionContext get() {
+        return RecognitionContext.contexts.get();
+    }
+
+    /**
+     * Starts a frame. Calls may be nested, the frame ends with the outermost {@link #end()}.
+     */
+    public void begin() {
+        this.depth++;
+    }
+
+    /**
+     * Ends a frame, the buffers handed out since the outermost {@link #begin()} are returned to the pool.
+     */
+    public void end() {
+        if (this.depth == 0) {
+            throw new IllegalStateException("No frame has been started");
+        }
+        this.depth--;
+        if (this.depth == 0) {
+            this.frames++;
+            this.ints.releaseAll();
+            this.floats.releaseAll();
+            this.bytes.releaseAll();
+            this.largest = 0;
+            this.ints.trim();
+            this.floats.trim();
+            this.bytes.trim();
+        }
+    }
+
+    /**
+     * @return true if a frame has been started on this thread
+     */
+    public boolean inFrame() {
+        return this.depth > 0;
+    }
+
+    /**
+     * @param size the minimal length
+     * @return a scratch buffer of at least {@code size} elements
+     */
+    public int[] getInts(int size) {
+        return this.ints.acquire(size);
+    }
+
+    /**
+     * @param size the minimal length
+     * @return a scratch buffer of at least {@code size} elements
+     */
+    public float[] getFloats(int size) {
+        return this.floats.acquire(size);
+    }
+
+    /**
+     * @param size the minimal length
+     * @return a scratch buffer of at least {@code size} elements
+     */
+    public byte[] getBytes(int size) {
+        return this.bytes.acquire(size);
+    }
+
+    /**
+     * @return the size of the free buffers kept by this thread, in bytes
+     */
+    long getRetained() {
+        return this.ints.retained + this.floats.retained + this.bytes.retained;
+    }
+
+    /**
+     * @return the maximal size of the free buffers kept by this thread at the end of the current frame, in bytes
+     */
+    long getRetainedLimit() {
+        return Math.max(RecognitionContext.MAX_RETAINED, 2 * this.largest);
+    }
+
+    /** index of the smallest power of two not smaller than size */
+    private static int bucket(int size) {
+        return size <= 1 ? 0 : 32 - Integer.numberOfLeadingZeros(size - 1);
+    }
+
+    private abstract class Pool<T> {
+        private final List<ArrayDeque<T>> free = new ArrayList<ArrayDeque<T>>(RecognitionContext.BUCKETS);
+        private final List<T> used = new ArrayList<T>();
+        /** the frame in which every bucket was used last */
+        private final long[] lastUsed = new long[RecognitionContext.BUCKETS];
+        private final int elementSize;
+        /** bytes held by the free lists */
+        long retained = 0;
+
+        Pool(int elementSize) {
+            this.elementSize = elementSize;
+            for (int i = 0; i < RecognitionContext.BUCKETS; i++) {
+                this.free.add(new ArrayDeque<T>());
+            }
+        }
+
+        abstract T allocate(int size);
+
+        abstract int length(T buffer);
+
+        private long bytes(T buffer) {
+            return (long) this.length(buffer) * this.elementSize;
+        }
+
+        T acquire(int size) {
+            if (!RecognitionContext.this.inFrame()) {
+                return this.allocate(size);
+            }
+            int bucket = RecognitionContext.bucket(size);
+            if (bucket == (RecognitionContext.BUCKETS - 1)) {
+                // the bucket cannot be rounded up to a power of two, the buffer is left to the garbage collector
+                return this.allocate(size);
+            }
+            this.lastUsed[bucket] = RecognitionContext.this.frames;
+            T buffer = this.free.get(bucket).pollFirst();
+            if (buffer == null) {
+                buffer = this.allocate(1 << bucket);
+            } else {
+                this.retained -= this.bytes(buffer);
+            }
+            this.used.add(buffer);
+            RecognitionContext.this.largest = Math.max(RecognitionContext.this.largest, this.bytes(buffer));
+            return buffer;
+        }
+
+        void releaseAll() {
+            for (T buffer : this.used) {
+                long size = this.bytes(buffer);
+                if ((RecognitionContext.this.getRetained() + size) <= RecognitionContext.this.getRetainedLimit()) {
+                    this.free.get(RecognitionContext.bucket(this.length(buffer))).addFirst(buffer);
+                    this.retained += size;
+                }
+            }
+            this.used.clear();
+        }
+
+        /** empties the buckets that have not been used for IDLE_FRAMES frames */
+        void trim() {
+            for (int i = 0; i < RecognitionContext.BUCKETS; i++) {
+                ArrayDeque<T> bucket = this.free.get(i);
+                if (!bucket.isEmpty()
+                    && ((RecognitionContext.this.frames - this.lastUsed[i]) > RecognitionContext.IDLE_FRAMES)) {
+                    for (T buffer : bucket) {
+                        this.retained -= this.bytes(buffer);
+                    }
+                    bucket.clear();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,263 @@
+/*
+------------------------------------------------------------------------
+JavaANPR - Automatic Number Plate Recognition System for Java
+------------------------------------------------------------------------
+
+This file is a part of the JavaANPR, licensed under the terms of the
+Educational Community License
+
+Copyright (c) 2006-2007 Ondrej Martinsky. All rights reserved
+
+This Original Work, including software, source code, documents, or
+other related items, is being provided by the copyright holder(s)
+subject to the terms of the Educational Community License. By
+obtaining, using and/or copying this Original Work, you agree that you
+have read, understand, and will comply with the following terms and
+conditions of the Educational Community License:
+
+Permission to use, copy, modify, merge, publish, distribute, and
+sublicense this Original Work and its documentation, with or without
+modification, for any purpose, and without fee or royalty to the
+copyright holder(s) is hereby granted, provided that you include the
+following on ALL copies of the Original Work or portions thereof,
+including modifications or derivatives, that you make:
+
+# The full text of the Educational Community License in a location
+viewable to users of the redistributed or derivative work.
+
+# Any pre-existing intellectual property disclaimers, notices, or terms
+and conditions.
+
+# Notice of any changes or modifications to the Original Work,
+including the date the changes were made.
+
+# Any modifications of the Original Work must be distributed in such a
+manner as to avoid any confusion with the Original Work of the
+copyright holders.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+The name and trademarks of copyright holder(s) may NOT be used in
+advertising or publicity pertaining to the Original or Derivative Works
+without specific, written prior permission. Title to copyright in the
+Original Work and any associated documentation will at all times remain
+with the copyright holders.
+
+If you want to alter upon this work, you MUST attribute it in
+a) all source files
+b) on every place, where is the copyright of derivated work
+exactly by the following label :
+
+---- label begin ----
+This work is a derivate of the JavaANPR. JavaANPR is a intellectual
+property of Ondrej Martinsky. Please visit http://javaanpr.sourceforge.net
+for more info about JavaANPR.
+----  label end  ----
+
+------------------------------------------------------------------------
+                                         http://javaanpr.sourceforge.net
+------------------------------------------------------------------------
+ */
+
+package net.sf.javaanpr.imageanalysis;
+
+import java.awt.Polygon;
+import java.awt.Rectangle;
+import java.awt.Shape;
+import java.awt.geom.Area;
+import java.awt.geom.PathIterator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import net.sf.javaanpr.configurator.Configurator;
+
+/**
+ * The part of the frames of a fixed camera where plates can appear, e.g. the lane in front of a gate. Bands are only
+ * searched for inside of it, see {@link CarSnapshot#setRegionOfInterest(RegionOfInterest)}.
+ * <p>
+ * The region is given in the coordinates of the source images. Edge detection is limited to its bounding rectangle, the
+ * projection of every row to the parts of that row inside of the region, and the bands are cut to the parts of the
+ * region in their rows. A region may consist of several polygons, e.g. two lanes without the space between them.
+ */
+public class RegionOfInterest {
+    private final Shape shape;
+    /* flattened outline of the shape, x1, y1, x2, y2 of every edge */
+    private final double[] edges;
+
+    public RegionOfInterest(Shape shape) {
+        this.shape = shape;
+        this.edges = RegionOfInterest.outline(shape);
+    }
+
+    /**
+     * Parses a region: polygons and rectangles separated by semicolons. A polygon is a list of vertices {@code x,y}
+     * separated by spaces, a rectangle is {@code x,y,width,height}. For example {@code "0,200,640,280"} or
+     * {@code "100,480 300,150 420,150 640,480"}.
+     *
+     * @param value the region
+     * @return the region, or null if the value is empty
+     * @throws IllegalArgumentException if the value is malformed
+     */
+    public static RegionOfInterest parse(String value) {
+        Area area = new Area();
+        for (String part : value.split(";")) {
+            String[] vertices = part.trim().split("\\s+");
+            if ((vertices.length == 1) && vertices[0].isEmpty()) {
+                continue;
+            }
+            try {
+                if (vertices.length == 1) {
+                    String[] r = vertices[0].split(",");
+                    if (r.length != 4) {
+                        throw new IllegalArgumentException("Malformed rectangle: " + part);
+                    }
+                    area.add(new Area(new Rectangle(Integer.parseInt(r[0].trim()), Integer.parseInt(r[1].trim()),
+                        Integer.parseInt(r[2].trim()), Integer.parseInt(r[3].trim()))));
+                    continue;
+                }
+                Polygon polygon = new Polygon();
+                for (String vertex : vertices) {
+                    String[] xy = vertex.split(",");
+                    if (xy.length != 2) {
+                        throw new IllegalArgumentException("Malformed vertex: " + vertex);
+                    }
+                    polygon.addPoint(Integer.parseInt(xy[0].trim()), Integer.parseInt(xy[1].trim()));
+                }
+                area.add(new Area(polygon));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Malformed region: " + part, e);
+            }
+        }
+        return area.isEmpty() ? null : new RegionOfInterest(area);
+    }
+
+    /**
+     * Returns the configured region of a camera, property {@code carsnapshot_roi.<camera>}, or the default region,
+     * property {@code carsnapshot_roi}, if the camera has none.
+     *
+     * @param camera the camera, or null for the default region
+     * @return the region, or null if the whole frames are analyzed
+     */
+    public static RegionOfInterest getConfigured(String camera) {
+        Configurator configurator = Configurator.getConfigurator();
+        String name = "carsnapshot_roi";
+        if ((camera != null) && configurator.hasProperty(name + "." + camera)) {
+            name = name + "." + camera;
+        }
+        if (!configurator.hasProperty(name)) {
+            return null;
+        }
+        return RegionOfInterest.parse(configurator.getStrProperty(name));
+    }
+
+    private static double[] outline(Shape shape) {
+        List<double[]> edges = new ArrayList<double[]>();
+        double[] coords = new double[6];
+        double startX = 0;
+        double startY = 0;
+        double lastX = 0;
+        double lastY = 0;
+        for (PathIterator it = shape.getPathIterator(null, 0.5); !it.isDone(); it.next()) {
+            switch (it.currentSegment(coords)) {
+                case PathIterator.SEG_MOVETO:
+                    startX = lastX = coords[0];
+                    startY = lastY = coords[1];
+                    break;
+                case PathIterator.SEG_LINETO:
+                    edges.add(new double[] { lastX, lastY, coords[0], coords[1] });
+                    lastX = coords[0];
+                    lastY = coords[1];
+                    break;
+                case PathIterator.SEG_CLOSE:
+                    edges.add(new double[] { lastX, lastY, startX, startY });
+                    lastX = startX;
+                    lastY = startY;
+                    break;
+                default:
+                    break;
+            }
+        }
+        double[] flat = new double[edges.size() * 4];
+        for (int i = 0; i < edges.size(); i++) {
+            System.arraycopy(edges.get(i), 0, flat, i * 4, 4);
+        }
+        return flat;
+    }
+
+    public Shape getShape() {
+        return this.shape;
+    }
+
+    /**
+     * Returns the bounding rectangle of the region in an image scaled down from the source.
+     *
+     * @param scale source pixels per pixel of the image, see {@link CarSnapshot#getScale()}
+     * @param width width of the image
+     * @param height height of the image
+     * @return the rectangle, clipped to the image, possibly empty
+     */
+    public Rectangle getBounds(double scale, int width, int height) {
+        Rectangle bounds = this.shape.getBounds();
+        int left = (int) Math.floor(bounds.x / scale);
+        int top = (int) Math.floor(bounds.y / scale);
+        int right = (int) Math.ceil((bounds.x + bounds.width) / scale);
+        int bottom = (int) Math.ceil((bounds.y + bounds.height) / scale);
+        return new Rectangle(0, 0, width, height).intersection(new Rectangle(left, top, right - left, bottom - top));
+    }
+
+    /**
+     * Computes the parts of rows of an image scaled down from the source that are inside of the region. A region made
+     * of several parts, or a non-convex one, can cover several separate spans of a row; the columns between them are
+     * outside.
+     *
+     * @param scale source pixels per pixel of the image, see {@link CarSnapshot#getScale()}
+     * @param width width of the image
+     * @param top the first row
+     * @param rows the number of rows
+     * @return for every row the spans inside of the region from left to right, as pairs of the first column and the
+     *         column after the last one; an empty array if the region does not reach the row
+     */
+    public int[][] getRowSpans(double scale, int width, int top, int rows) {
+        double[] e = this.edges;
+        int[][] spans = new int[rows][];
+        double[] crossings = new double[e.length / 4];
+        int[] span = new int[crossings.length + 2];
+        for (int row = 0; row < rows; row++) {
+            double y = ((top + row) + 0.5) * scale;
+            int n = 0;
+            for (int i = 0; i < e.length; i += 4) {
+                double y1 = e[i + 1];
+                double y2 = e[i + 3];
+                if ((y1 == y2) || (y < Math.min(y1, y2)) || (y >= Math.max(y1, y2))) {
+                    continue;
+                }
+                crossings[n++] = e[i] + (((y - y1) * (e[i + 2] - e[i])) / (y2 - y1));
+            }
+            Arrays.sort(crossings, 0, n);
+            // even-odd rule: the row enters the region at every even crossing and leaves it at the next one
+            int count = 0;
+            for (int i = 0; (i + 1) < n; i += 2) {
+                int left = Math.max(0, Math.min(width, (int) Math.floor(crossings[i] / scale)));
+                int right = Math.max(0, Math.min(width, (int) Math.ceil(crossings[i + 1] / scale)));
+                if (left >= right) {
+                    continue;
+                }
+                if ((count > 0) && (left <= span[count - 1])) {
+                    span[count - 1] = Math.max(span[count - 1], right); // touching after rounding
+                } else {
+                    span[count++] = left;
+                    span[count++] = right;
+                }
+            }
+            spans[row] = Arrays.copyOf(span, count);
+        }
+        return spans;
+    }
+}
@@ -0,0 +1,186 @@
+/*
+------------------------------------------------------------------------
+JavaANPR - Automatic Number Plate Recognition System for Java
+------------------------------------------------------------------------
+
+This file is a part of the JavaANPR, licensed under the terms of the
+Educational Community License
+
+Copyright (c) 2006-2007 Ondrej Martinsky. All rights reserved
+
+This Original Work, including software, source code, documents, or
+other related items, is being provided by the copyright holder(s)
+subject to the terms of the Educational Community License. By
+obtaining, using and/or copying this Original Work, you agree that you
+have read, understand, and will comply with the following terms and
+conditions of the Educational Community License:
+
+Permission to use, copy, modify, merge, publish, distribute, and
+sublicense this Original Work and its documentation, with or without
+modification, for any purpose, and without fee or royalty to the
+copyright holder(s) is hereby granted, provided that you include the
+following on ALL copies of the Original Work or portions thereof,
+including modifications or derivatives, that you make:
+
+# The full text of the Educational Community License in a location
+viewable to users of the redistributed or derivative work.
+
+# Any pre-existing intellectual property disclaimers, notices, or terms
+and conditions.
+
+# Notice of any changes or modifications to the Original Work,
+including the date the changes were made.
+
+# Any modifications of the Original Work must be distributed in such a
+manner as to avoid any confusion with the Original Work of the
+copyright holders.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+The name and trademarks of copyright holder(s) may NOT be used in
+advertising or publicity pertaining to the Original or Derivative Works
+without specific, written prior permission. Title to copyright in the
+Original Work and any associated documentation will at all times remain
+with the copyright holders.
+
+If you want to alter upon this work, you MUST attribute it in
+a) all source files
+b) on every place, where is the copyright of derivated work
+exactly by the following label :
+
+---- label begin ----
+This work is a derivate of the JavaANPR. JavaANPR is a intellectual
+property of Ondrej Martinsky. Please visit http://javaanpr.sourceforge.net
+for more info about JavaANPR.
+----  label end  ----
+
+------------------------------------------------------------------------
+                                         http://javaanpr.sourceforge.net
+------------------------------------------------------------------------
+ */
+
+package net.sf.javaanpr.imageanalysis;
+
+/**
+ * Portable implementation of the {@link Kernels}, in plain Java.
+ */
+public class ScalarKernels extends Kernels {
+    @Override
+    public boolean isSupported() {
+        return true;
+    }
+
+    @Override
+    public String getName() {
+        return "scalar";
+    }
+
+    @Override
+    public void filterRow(ProjectionProfile.Filter filter, int[] rgb, int index, int stride, int[] out, int from,
+        int to) {
+        switch (filter) {
+            case SNAPSHOT_VERTICAL_EDGES:
+                for (int x = from; x < to; x++) {
+                    // sum of (left - right) over the rows y-2 .. y+1
+                    int i = index + x;
+                    int c0 = 0, c1 = 0, c2 = 0;
+                    for (int j = i - (2 * stride); j <= (i + stride); j += stride) {
+                        int l = rgb[j - 1];
+                        int r = rgb[j + 1];
+                        c0 += ((l >> 16) & 0xff) - ((r >> 16) & 0xff);
+                        c1 += ((l >> 8) & 0xff) - ((r >> 8) & 0xff);
+                        c2 += (l & 0xff) - (r & 0xff);
+                    }
+                    out[x] = ScalarKernels.clamp(c0, c1, c2);
+                }
+                break;
+            case VERTICAL_EDGES:
+                for (int x = from; x < to; x++) {
+                    int l = rgb[(index + x) - 1];
+                    int r = rgb[index + x + 1];
+                    out[x] = ScalarKernels.clamp(((l >> 16) & 0xff) - ((r >> 16) & 0xff), ((l >> 8) & 0xff)
+                        - ((r >> 8) & 0xff), (l & 0xff) - (r & 0xff));
+                }
+                break;
+            case HORIZONTAL_SOBEL:
+                for (int x = from; x < to; x++) {
+                    out[x] = ScalarKernels.horizontalSobel(rgb, index + x, stride);
+                }
+                break;
+            case SOBEL:
+                for (int x = from; x < to; x++) {
+                    out[x] = ProjectionProfile.sobelMagnitude(ScalarKernels.verticalSobel(rgb, index + x, stride),
+                        ScalarKernels.horizontalSobel(rgb, index + x, stride));
+                }
+                break;
+            default:
+                for (int x = from; x < to; x++) {
+                    out[x] = ProjectionProfile.luma(rgb[index + x]);
+                }
+        }
+    }
+
+    @Override
+    public void accumulateColumns(float[] sums, int[] luma, int width, int threshold) {
+        for (int x = 0; x < width; x++) {
+            sums[x] += Photo.BRIGHTNESS[luma[x] < threshold ? 0 : luma[x]];
+        }
+    }
+
+    @Override
+    public float sumRow(int[] luma, int width, int threshold) {
+        float sum = 0;
+        for (int x = 0; x < width; x++) {
+            sum += Photo.BRIGHTNESS[luma[x] < threshold ? 0 : luma[x]];
+        }
+        return sum;
+    }
+
+    @Override
+    public float squaredDistance(double[] a, double[] b) {
+        float diff = 0;
+        for (int x = 0; x < a.length; x++) {
+            float partialDiff = (float) Math.abs(a[x] - b[x]);
+            diff += partialDiff * partialDiff;
+        }
+        return diff;
+    }
+
+    /** (left - right) weighted 1, 2, 1 over the rows y-1, y, y+1 */
+    static int verticalSobel(int[] data, int i, int s) {
+        int c0 = 0, c1 = 0, c2 = 0;
+        for (int j = i - s, weight = 1; j <= (i + s); j += s, weight ^= 3) {
+            int l = data[j - 1];
+            int r = data[j + 1];
+            c0 += weight * (((l >> 16) & 0xff) - ((r >> 16) & 0xff));
+            c1 += weight * (((l >> 8) & 0xff) - ((r >> 8) & 0xff));
+            c2 += weight * ((l & 0xff) - (r & 0xff));
+        }
+        return ScalarKernels.clamp(c0, c1, c2);
+    }
+
+    /** (top - bottom) weighted 1, 2, 1 over the columns x-1, x, x+1 */
+    static int horizontalSobel(int[] data, int i, int s) {
+        int c0 = 0, c1 = 0, c2 = 0;
+        for (int j = i - 1, weight = 1; j <= (i + 1); j++, weight ^= 3) {
+            int t = data[j - s];
+            int b = data[j + s];
+            c0 += weight * (((t >> 16) & 0xff) - ((b >> 16) & 0xff));
+            c1 += weight * (((t >> 8) & 0xff) - ((b >> 8) & 0xff));
+            c2 += weight * ((t & 0xff) - (b & 0xff));
+        }
+        return ScalarKernels.clamp(c0, c1, c2);
+    }
+
+    /** largest of the channels, clamped to 0..255 */
+    static int clamp(int c0, int c1, int c2) {
+        int max = Math.max(c0, Math.max(c1, c2));
+        return max < 0 ? 0 : (max > 255 ? 255 : max);
+    }
+}
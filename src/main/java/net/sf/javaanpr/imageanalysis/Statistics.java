@@ -82,24 +82,60 @@ public class Statistics {
     }
 
     Statistics(Photo photo) {
-        float sum = 0;
-        float sum2 = 0;
-        int w = photo.getWidth();
-        int h = photo.getHeight();
-
-        for (int x = 0; x < w; x++) {
-            for (int y = 0; y < h; y++) {
-                float pixelValue = photo.getBrightness(x, y);
-                this.maximum = Math.max(pixelValue, this.maximum);
-                this.minimum = Math.min(pixelValue, this.minimum);
-                sum += pixelValue;
-                sum2 += (pixelValue * pixelValue);
+        this(Statistics.histogram(photo.getRegion()));
+    }
+
+    /**
+     * Computes the statistics from a histogram of luma values. The sums are exact, the moments are rounded to float
+     * only at the end.
+     *
+     * @param histogram 256 pixel counts indexed by luma
+     */
+    Statistics(int[] histogram) {
+        long count = 0;
+        long sum = 0;
+        long sum2 = 0;
+        for (int luma = 0; luma < 256; luma++) {
+            long n = histogram[luma];
+            if (n != 0) {
+                this.maximum = Math.max(Photo.BRIGHTNESS[luma], this.maximum);
+                this.minimum = Math.min(Photo.BRIGHTNESS[luma], this.minimum);
             }
+            count += n;
+            sum += n * luma;
+            sum2 += n * luma * luma;
         }
-        int count = (w * h);
-        this.average = sum / count;
+        this.average = (float) (sum / (255.0 * count));
         // rozptyl = priemer stvorcov + stvorec priemeru
-        this.dispersion = (sum2 / count) - (this.average * this.average);
+        this.dispersion = (float) (sum2 / (255.0 * 255.0 * count)) - (this.average * this.average);
+    }
+
+    static int[] histogram(ImageRegion region) {
+        int[] histogram = new int[256];
+        byte[] luma = region.getData();
+        int w = region.getWidth();
+        int h = region.getHeight();
+        for (int y = 0; y < h; y++) {
+            int row = region.getOffset() + (y * region.getStride());
+            for (int x = 0; x < w; x++) {
+                histogram[luma[row + x] & 0xff]++;
+            }
+        }
+        return histogram;
+    }
+
+    /**
+     * Tabulates {@link #thresholdBrightness(float, float)} for every luma value.
+     *
+     * @param coef the coefficient
+     * @return 256 thresholded luma values indexed by the source luma
+     */
+    byte[] thresholdLut(float coef) {
+        byte[] lut = new byte[256];
+        for (int luma = 0; luma < 256; luma++) {
+            lut[luma] = (byte) Photo.toLuma(this.thresholdBrightness(Photo.BRIGHTNESS[luma], coef));
+        }
+        return lut;
     }
 
     public float thresholdBrightness(float value, float coef) {
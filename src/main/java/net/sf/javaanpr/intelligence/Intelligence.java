@@ -67,6 +67,7 @@ for more info about JavaANPR.
 
 package net.sf.javaanpr.intelligence;
 
+import java.awt.Rectangle;
 import java.awt.geom.AffineTransform;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
@@ -82,6 +83,7 @@ import net.sf.javaanpr.imageanalysis.Char;
 import net.sf.javaanpr.imageanalysis.HoughTransformation;
 import net.sf.javaanpr.imageanalysis.Photo;
 import net.sf.javaanpr.imageanalysis.Plate;
+import net.sf.javaanpr.imageanalysis.RecognitionContext;
 import net.sf.javaanpr.jar.Main;
 import net.sf.javaanpr.recognizer.CharacterRecognizer;
 import net.sf.javaanpr.recognizer.CharacterRecognizer.RecognizedChar;
@@ -119,7 +121,49 @@ public class Intelligence {
         return lastProcessDuration;
     }
 
+    /**
+     * Applies the configured syntax analysis to a plate, e.g. one fused from several frames by {@link PlateFusion}.
+     *
+     * @param recognizedPlate the plate
+     * @return the plate number
+     */
+    public String parse(RecognizedPlate recognizedPlate) {
+        return Intelligence.parser.parse(recognizedPlate, configurator.getIntProperty("intelligence_syntaxanalysis"));
+    }
+
     public String recognizeWithReport(CarSnapshot carSnapshot) throws IllegalArgumentException, IOException {
+        RecognitionContext context = RecognitionContext.get();
+        context.begin();
+        try {
+            return this.recognizeFrameWithReport(carSnapshot);
+        } finally {
+            context.end(); // scratch buffers of the frame are reused by the next one
+        }
+    }
+
+    public String recognize(CarSnapshot carSnapshot) {
+        RecognitionResult result = this.recognizePlate(carSnapshot);
+        return (result == null) ? null : result.getPlate();
+    }
+
+    /**
+     * Recognizes a snapshot like {@link #recognize(CarSnapshot)}, returning also the characters and the position of
+     * the plate.
+     *
+     * @param carSnapshot the snapshot
+     * @return the plate, or null if no plate has been found
+     */
+    public RecognitionResult recognizePlate(CarSnapshot carSnapshot) {
+        RecognitionContext context = RecognitionContext.get();
+        context.begin();
+        try {
+            return this.recognizeFrame(carSnapshot);
+        } finally {
+            context.end();
+        }
+    }
+
+    private String recognizeFrameWithReport(CarSnapshot carSnapshot) throws IllegalArgumentException, IOException {
         final boolean enableReportGeneration = true;
 
         TimeMeter time = new TimeMeter();
@@ -158,7 +202,7 @@ public class Intelligence {
                 }
 
                 // SKEW-RELATED
-                Plate notNormalizedCopy;
+                Photo notNormalizedCopy;
                 BufferedImage renderedHoughTransform;
                 HoughTransformation hough = null;
 
@@ -166,8 +210,7 @@ public class Intelligence {
                  * detekcia sa robi bud: 1. kvoli report generatoru 2. kvoli korekcii
                  */
                 if (enableReportGeneration) {// || (skewDetectionMode != 0)) {
-                    notNormalizedCopy = plate.clone();
-                    notNormalizedCopy.horizontalEdgeDetector(notNormalizedCopy.getBi());
+                    notNormalizedCopy = plate.getHorizontalEdges();
                     hough = notNormalizedCopy.getHoughTransformation();
                     renderedHoughTransform = hough.render(HoughTransformation.RENDER_ALL, HoughTransformation.COLOR_BW);
                 }
@@ -389,7 +432,7 @@ public class Intelligence {
         return null;
     }
 
-    public String recognize(CarSnapshot carSnapshot) {
+    private RecognitionResult recognizeFrame(CarSnapshot carSnapshot) {
         TimeMeter time = new TimeMeter();
         int syntaxAnalysisMode = configurator.getIntProperty("intelligence_syntaxanalysis");
         int skewDetectionMode = configurator.getIntProperty("intelligence_skewdetection");
@@ -399,10 +442,6 @@ public class Intelligence {
             for (Plate plate : b.getPlates()) {// doporucene 3
 
                 // SKEW-RELATED
-                Plate notNormalizedCopy;
-
-                @SuppressWarnings("unused")
-                BufferedImage renderedHoughTransform = null;
                 HoughTransformation hough = null;
                 if (skewDetectionMode != 0) { // detekcia
                                               // sa
@@ -415,11 +454,11 @@ public class Intelligence {
                                               // 2)
                                               // koli
                                               // korekcii
-                    notNormalizedCopy = plate.clone();
-                    notNormalizedCopy.horizontalEdgeDetector(notNormalizedCopy.getBi());
-                    hough = notNormalizedCopy.getHoughTransformation();
-                    renderedHoughTransform = hough.render(HoughTransformation.RENDER_ALL, HoughTransformation.COLOR_BW);
+                    hough = plate.getHorizontalEdges().getHoughTransformation();
                 }
+                // the sheared copy of a skew corrected plate is not a part of the snapshot any more, its bounds are
+                // the ones of the plate before the correction
+                Rectangle plateBounds = carSnapshot.getSourceBounds(plate);
                 if (skewDetectionMode != 0) { // korekcia sa robi iba ak je
                                               // zapnuta
                     AffineTransform shearTransform = AffineTransform.getShearInstance(0, -(double) hough.dy / hough.dx);
@@ -429,6 +468,9 @@ public class Intelligence {
                 }
 
                 plate.normalize();
+                if (skewDetectionMode == 0) {
+                    plateBounds = carSnapshot.getSourceBounds(plate); // cropped by normalize
+                }
 
                 float plateWHratio = (float) plate.getWidth() / (float) plate.getHeight();
                 if ((plateWHratio < configurator.getDoubleProperty("intelligence_minPlateWidthHeightRatio"))
@@ -552,7 +594,8 @@ public class Intelligence {
                 }
 
                 lastProcessDuration = time.getTime();
-                return Intelligence.parser.parse(recognizedPlate, syntaxAnalysisMode);
+                return new RecognitionResult(Intelligence.parser.parse(recognizedPlate, syntaxAnalysisMode),
+                    recognizedPlate, plateBounds);
 
             } // end for each plate
 
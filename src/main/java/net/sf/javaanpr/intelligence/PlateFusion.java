@@ -0,0 +1,307 @@
+/*
+------------------------------------------------------------------------
+JavaANPR - Automatic Number Plate Recognition System for Java
+------------------------------------------------------------------------
+
+This file is a part of the JavaANPR, licensed under the terms of the
+Educational Community License
+
+Copyright (c) 2006-2007 Ondrej Martinsky. All rights reserved
+
+This Original Work, including software, source code, documents, or
+other related items, is being provided by the copyright holder(s)
+subject to the terms of the Educational Community License. By
+obtaining, using and/or copying this Original Work, you agree that you
+have read, understand, and will comply with the following terms and
+conditions of the Educational Community License:
+
+Permission to use, copy, modify, merge, publish, distribute, and
+sublicense this Original Work and its documentation, with or without
+modification, for any purpose, and without fee or royalty to the
+copyright holder(s) is hereby granted, provided that you include the
+following on ALL copies of the Original Work or portions thereof,
+including modifications or derivatives, that you make:
+
+# The full text of the Educational Community License in a location
+viewable to users of the redistributed or derivative work.
+
+# Any pre-existing intellectual property disclaimers, notices, or terms
+and conditions.
+
+# Notice of any changes or modifications to the Original Work,
+including the date the changes were made.
+
+# Any modifications of the Original Work must be distributed in such a
+manner as to avoid any confusion with the Original Work of the
+copyright holders.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+The name and trademarks of copyright holder(s) may NOT be used in
+advertising or publicity pertaining to the Original or Derivative Works
+without specific, written prior permission. Title to copyright in the
+Original Work and any associated documentation will at all times remain
+with the copyright holders.
+
+If you want to alter upon this work, you MUST attribute it in
+a) all source files
+b) on every place, where is the copyright of derivated work
+exactly by the following label :
+
+---- label begin ----
+This work is a derivate of the JavaANPR. JavaANPR is a intellectual
+property of Ondrej Martinsky. Please visit http://javaanpr.sourceforge.net
+for more info about JavaANPR.
+----  label end  ----
+
+------------------------------------------------------------------------
+                                         http://javaanpr.sourceforge.net
+------------------------------------------------------------------------
+ */
+
+package net.sf.javaanpr.intelligence;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import net.sf.javaanpr.configurator.Configurator;
+import net.sf.javaanpr.recognizer.CharacterRecognizer;
+import net.sf.javaanpr.recognizer.CharacterRecognizer.RecognizedChar;
+import net.sf.javaanpr.recognizer.CharacterRecognizer.RecognizedChar.RecognizedPattern;
+
+/**
+ * Fuses the plates of one vehicle recognized in several frames. The costs of every pattern are averaged per position
+ * of the character in the plate, so a character misread in a single frame is outvoted by the other frames. Only the
+ * plates of the most frequent length are fused, the others are assumed to be segmentation errors.
+ * <p>
+ * The confidence of a position is the share of the fused frames in which the fused character was the best match, the
+ * confidence of the plate is the one of its least confident position. Once enough frames agree, the vehicle needs not
+ * be recognized any more.
+ */
+public class PlateFusion {
+    private final CharacterRecognizer recognizer;
+    private final int minimumFrames;
+    private final double minimumConfidence;
+
+    /* accumulated plates by their length */
+    private final Map<Integer, PlateAccumulator> accumulators = new HashMap<Integer, PlateAccumulator>();
+    private int frames = 0;
+
+    /* the costs of one character at one position */
+    private static class Accumulator {
+        float costSum = 0;
+        int costCount = 0;
+        int votes = 0; // frames the character was the best match in
+
+        float getAverageCost() {
+            return this.costSum / this.costCount;
+        }
+    }
+
+    /* the plates of one length */
+    private class PlateAccumulator {
+        private final List<Map<Character, Accumulator>> positions;
+        private int frames = 0;
+        private int direction = 0;
+        private int lastFrame = 0;
+
+        PlateAccumulator(int length) {
+            this.positions = new ArrayList<Map<Character, Accumulator>>(length);
+            for (int i = 0; i < length; i++) {
+                this.positions.add(new LinkedHashMap<Character, Accumulator>());
+            }
+        }
+
+        void add(RecognizedPlate plate) {
+            for (int i = 0; i < this.positions.size(); i++) {
+                RecognizedChar chr = plate.getChar(i);
+                Map<Character, Accumulator> position = this.positions.get(i);
+                this.direction = chr.getSortDirection();
+                // a character can have several patterns, the patterns are sorted so its best one comes first;
+                // characters of the same shape (0 and O) match equally well and all get the vote of the frame
+                float bestCost = chr.getPatterns().firstElement().getCost();
+                Set<Character> seen = new HashSet<Character>();
+                for (RecognizedPattern pattern : chr.getPatterns()) {
+                    if (!seen.add(pattern.getChar())) {
+                        continue;
+                    }
+                    Accumulator accumulator = position.get(pattern.getChar());
+                    if (accumulator == null) {
+                        accumulator = new Accumulator();
+                        position.put(pattern.getChar(), accumulator);
+                    }
+                    accumulator.costSum += pattern.getCost();
+                    accumulator.costCount++;
+                    if (pattern.getCost() == bestCost) {
+                        accumulator.votes++;
+                    }
+                }
+            }
+            this.frames++;
+            this.lastFrame = PlateFusion.this.frames;
+        }
+
+        /**
+         * @return the lowest share of the frames voting for the fused character over all positions
+         */
+        float agreement() {
+            float agreement = 1;
+            for (Map<Character, Accumulator> position : this.positions) {
+                float best = Float.NaN;
+                for (Accumulator accumulator : position.values()) {
+                    float average = accumulator.getAverageCost();
+                    if (Float.isNaN(best) || ((this.direction == 0) ? (average < best) : (average > best))) {
+                        best = average;
+                    }
+                }
+                int votes = 0;
+                for (Accumulator accumulator : position.values()) {
+                    if (accumulator.getAverageCost() == best) {
+                        votes = Math.max(votes, accumulator.votes);
+                    }
+                }
+                agreement = Math.min(agreement, (float) votes / this.frames);
+            }
+            return agreement;
+        }
+
+        RecognizedPlate fuse() {
+            RecognizedPlate plate = new RecognizedPlate();
+            for (Map<Character, Accumulator> position : this.positions) {
+                RecognizedChar chr = PlateFusion.this.recognizer.new RecognizedChar();
+                for (Map.Entry<Character, Accumulator> entry : position.entrySet()) {
+                    chr.addPattern(chr.new RecognizedPattern(entry.getKey(), entry.getValue().getAverageCost()));
+                }
+                chr.sort(this.direction);
+                plate.addChar(chr);
+            }
+            return plate;
+        }
+    }
+
+    /**
+     * Creates a fusion with the configured thresholds, properties {@code fusion_*}.
+     *
+     * @param recognizer the recognizer the plates come from
+     */
+    public PlateFusion(CharacterRecognizer recognizer) {
+        this(recognizer, Configurator.getConfigurator().getIntProperty("fusion_minimumframes"),
+            Configurator.getConfigurator().getDoubleProperty("fusion_minimumconfidence"));
+    }
+
+    /**
+     * @param recognizer the recognizer the plates come from
+     * @param minimumFrames the fused plate is not confident before this number of plates has been fused
+     * @param minimumConfidence the fused plate is confident from this confidence on, 0..1
+     */
+    public PlateFusion(CharacterRecognizer recognizer, int minimumFrames, double minimumConfidence) {
+        this.recognizer = recognizer;
+        this.minimumFrames = minimumFrames;
+        this.minimumConfidence = minimumConfidence;
+    }
+
+    /**
+     * Adds the plate of the next frame of the vehicle, see {@link RecognitionResult#getRecognizedPlate()}.
+     *
+     * @param plate the plate
+     */
+    public void add(RecognizedPlate plate) {
+        int length = plate.chars.size();
+        if (length == 0) {
+            return;
+        }
+        this.frames++;
+        PlateAccumulator accumulator = this.accumulators.get(length);
+        if (accumulator == null) {
+            accumulator = new PlateAccumulator(length);
+            this.accumulators.put(length, accumulator);
+        }
+        accumulator.add(plate);
+    }
+
+    /**
+     * @return the plates of the most frequent length, the most recent length on a tie
+     */
+    private PlateAccumulator getBest() {
+        PlateAccumulator best = null;
+        for (PlateAccumulator accumulator : this.accumulators.values()) {
+            if ((best == null) || (accumulator.frames > best.frames)
+                || ((accumulator.frames == best.frames) && (accumulator.lastFrame > best.lastFrame))) {
+                best = accumulator;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return the fused plate, with the averaged costs of all patterns, or null if no plate has been added
+     */
+    public RecognizedPlate getFusedPlate() {
+        PlateAccumulator best = this.getBest();
+        return best == null ? null : best.fuse();
+    }
+
+    /**
+     * @return the number of plates the fused plate is made of
+     */
+    public int getFusedFrames() {
+        PlateAccumulator best = this.getBest();
+        return best == null ? 0 : best.frames;
+    }
+
+    /**
+     * @return the confidence of the fused plate, 0..1, 0 if no plate has been added
+     */
+    public float getConfidence() {
+        PlateAccumulator best = this.getBest();
+        return best == null ? 0 : best.agreement();
+    }
+
+    /**
+     * @return true if enough plates have been fused and the fused plate is confident enough
+     */
+    public boolean isConfident() {
+        return (this.getFusedFrames() >= this.minimumFrames) && (this.getConfidence() >= this.minimumConfidence);
+    }
+
+    /**
+     * Compares a plate with the fused plate character by character, to tell a misread plate of the same vehicle from
+     * the plate of another one.
+     *
+     * @param plate the plate
+     * @return the number of positions in which the best characters of the plates differ, plus the difference of their
+     *         lengths; the length of the plate if no plate has been fused
+     */
+    public int getDifferences(RecognizedPlate plate) {
+        RecognizedPlate fused = this.getFusedPlate();
+        String current = plate.getString();
+        String other = (fused == null) ? "" : fused.getString();
+        int common = Math.min(current.length(), other.length());
+        int differences = Math.abs(current.length() - other.length());
+        for (int i = 0; i < common; i++) {
+            if (current.charAt(i) != other.charAt(i)) {
+                differences++;
+            }
+        }
+        return differences;
+    }
+
+    /**
+     * Forgets all plates, the next plate is of another vehicle.
+     */
+    public void reset() {
+        this.accumulators.clear();
+        this.frames = 0;
+    }
+}
@@ -0,0 +1,111 @@
+/*
+------------------------------------------------------------------------
+JavaANPR - Automatic Number Plate Recognition System for Java
+------------------------------------------------------------------------
+
+This file is a part of the JavaANPR, licensed under the terms of the
+Educational Community License
+
+Copyright (c) 2006-2007 Ondrej Martinsky. All rights reserved
+
+This Original Work, including software, source code, documents, or
+other related items, is being provided by the copyright holder(s)
+subject to the terms of the Educational Community License. By
+obtaining, using and/or copying this Original Work, you agree that you
+have read, understand, and will comply with the following terms and
+conditions of the Educational Community License:
+
+Permission to use, copy, modify, merge, publish, distribute, and
+sublicense this Original Work and its documentation, with or without
+modification, for any purpose, and without fee or royalty to the
+copyright holder(s) is hereby granted, provided that you include the
+following on ALL copies of the Original Work or portions thereof,
+including modifications or derivatives, that you make:
+
+# The full text of the Educational Community License in a location
+viewable to users of the redistributed or derivative work.
+
+# Any pre-existing intellectual property disclaimers, notices, or terms
+and conditions.
+
+# Notice of any changes or modifications to the Original Work,
+including the date the changes were made.
+
+# Any modifications of the Original Work must be distributed in such a
+manner as to avoid any confusion with the Original Work of the
+copyright holders.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS
+OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY
+CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE
+SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+The name and trademarks of copyright holder(s) may NOT be used in
+advertising or publicity pertaining to the Original or Derivative Works
+without specific, written prior permission. Title to copyright in the
+Original Work and any associated documentation will at all times remain
+with the copyright holders.
+
+If you want to alter upon this work, you MUST attribute it in
+a) all source files
+b) on every place, where is the copyright of derivated work
+exactly by the following label :
+
+---- label begin ----
+This work is a derivate of the JavaANPR. JavaANPR is a intellectual
+property of Ondrej Martinsky. Please visit http://javaanpr.sourceforge.net
+for more info about JavaANPR.
+----  label end  ----
+
+------------------------------------------------------------------------
+                                         http://javaanpr.sourceforge.net
+------------------------------------------------------------------------
+ */
+package net.sf.javaanpr.intelligence;
+
+import java.awt.Rectangle;
+
+import net.sf.javaanpr.imageanalysis.CarSnapshot;
+import net.sf.javaanpr.imageanalysis.Photo;
+
+/**
+ * The plate found in one snapshot by {@link Intelligence#recognizePlate(CarSnapshot)}. Each recognition returns its
+ * own result, so snapshots of several cameras can be recognized concurrently.
+ */
+public class RecognitionResult {
+    private final String plate;
+    private final RecognizedPlate recognizedPlate;
+    private final Rectangle bounds;
+
+    public RecognitionResult(String plate, RecognizedPlate recognizedPlate, Rectangle bounds) {
+        this.plate = plate;
+        this.recognizedPlate = recognizedPlate;
+        this.bounds = bounds;
+    }
+
+    /**
+     * @return the plate number after the syntax analysis
+     */
+    public String getPlate() {
+        return this.plate;
+    }
+
+    /**
+     * @return the characters of the plate with the costs of all patterns, before the syntax analysis
+     */
+    public RecognizedPlate getRecognizedPlate() {
+        return this.recognizedPlate;
+    }
+
+    /**
+     * @return the bounds of the plate in the coordinates of the source image of the snapshot, see
+     *         {@link CarSnapshot#getSourceBounds(Photo)}; the bounds of a skew corrected plate are the ones of the
+     *         plate before the correction, not cropped by {@link net.sf.javaanpr.imageanalysis.Plate#normalize()}
+     */
+    public Rectangle getBounds() {
+        return this.bounds;
+    }
+}
@@ -68,10 +68,18 @@ for more info about JavaANPR.
 package net.sf.javaanpr.jar;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
 
 import javax.swing.UIManager;
 
+import net.sf.javaanpr.capture.FrameSource;
+import net.sf.javaanpr.capture.MjpegFrameSource;
+import net.sf.javaanpr.capture.MotionGate;
+import net.sf.javaanpr.capture.PlateTracker;
 import net.sf.javaanpr.configurator.Configurator;
 import net.sf.javaanpr.gui.ReportGenerator;
 import net.sf.javaanpr.gui.windows.FrameComponentInit;
@@ -79,6 +87,9 @@ import net.sf.javaanpr.gui.windows.FrameMain;
 import net.sf.javaanpr.imageanalysis.CarSnapshot;
 import net.sf.javaanpr.imageanalysis.Char;
 import net.sf.javaanpr.intelligence.Intelligence;
+import net.sf.javaanpr.intelligence.PlateFusion;
+import net.sf.javaanpr.intelligence.RecognitionResult;
+import net.sf.javaanpr.intelligence.RecognizedPlate;
 import net.sf.javaanpr.recognizer.NeuralPatternClassificator;
 
 public class Main {
@@ -92,6 +103,9 @@ public class Main {
         + "                  Recognize single snapshot\n" + "    -recognize -i <snapshot> -o <dstdir>\n"
         + "                  Recognize single snapshot and\n"
         + "                  save report html into specified\n" + "                  directory\n"
+        + "    -recognize -s <stream>\n" + "                  Recognize every frame of a Motion JPEG\n"
+        + "                  stream or of concatenated JPEG files,\n"
+        + "                  - reads the standard input\n"
         + "    -newconfig -o <file>\n" + "                  Generate default configuration file\n"
         + "    -newnetwork -o <file>\n" + "                  Train neural network according to\n"
         + "                  specified feature extraction method and\n"
@@ -130,6 +144,67 @@ public class Main {
         npc.network.saveToXml(destinationFile);
     }
 
+    // rozpozna vsetky snimky zdroja, vypise jeden riadok na snimku
+    // snimky bez pohybu sa nerozpoznavaju, plati pre ne posledny vysledok
+    // znacka sa najprv hlada v okoli znacky z predchadzajucej snimky
+    // znacky jedneho vozidla sa spajaju, vozidlo s dostatocne istou znackou sa
+    // rozpoznava len kazdu n-tu snimku; ak sa znacka niekolko snimok po sebe
+    // nenajde alebo sa lisi, alebo sa scena upokoji, zacina sa nove vozidlo
+    public static void recognizeStream(FrameSource source) throws IOException {
+        MotionGate gate = new MotionGate();
+        PlateTracker tracker = new PlateTracker(Main.systemLogic);
+        PlateFusion fusion = new PlateFusion(Intelligence.chrRecog);
+        int recheckInterval = Math.max(1, Configurator.getConfigurator().getIntProperty("fusion_recheckinterval"));
+        int maxDifferences = Configurator.getConfigurator().getIntProperty("fusion_maxdifferences");
+        int disagreementFrames = Math.max(1,
+            Configurator.getConfigurator().getIntProperty("fusion_disagreementframes"));
+        try {
+            CarSnapshot snapshot;
+            String result = null;
+            int skipped = 0; // frames of a confident vehicle since its last check
+            // the plates (null for none found) disagreeing with the fused plate since the last one agreeing with it
+            List<RecognizedPlate> disagreeing = new ArrayList<RecognizedPlate>();
+            for (long frame = 0; (snapshot = source.nextFrame()) != null; frame++) {
+                if (!gate.hasMotion(snapshot)) {
+                    if (fusion.isConfident()) {
+                        fusion.reset(); // the next motion may be another vehicle
+                        disagreeing.clear();
+                    }
+                } else if (!fusion.isConfident() || (++skipped >= recheckInterval)) {
+                    skipped = 0;
+                    RecognitionResult recognized = tracker.recognize(snapshot);
+                    RecognizedPlate plate = (recognized == null) ? null : recognized.getRecognizedPlate();
+                    if (fusion.getFusedFrames() == 0) {
+                        if (plate != null) {
+                            fusion.add(plate);
+                        }
+                    } else if ((plate != null) && (fusion.getDifferences(plate) <= maxDifferences)) {
+                        // a few misread characters are outvoted by the fused frames
+                        disagreeing.clear();
+                        fusion.add(plate);
+                    } else {
+                        // a single frame without the plate, or with a badly misread one, is ignored; only a plate
+                        // that keeps missing or disagreeing is another vehicle (stop-and-go traffic) or none at all
+                        disagreeing.add(plate);
+                        if (disagreeing.size() >= disagreementFrames) {
+                            fusion.reset();
+                            for (RecognizedPlate next : disagreeing) {
+                                if (next != null) {
+                                    fusion.add(next);
+                                }
+                            }
+                            disagreeing.clear();
+                        }
+                    }
+                    result = (fusion.getFusedFrames() == 0) ? null : Main.systemLogic.parse(fusion.getFusedPlate());
+                }
+                System.out.println(frame + " " + result);
+            }
+        } finally {
+            source.close();
+        }
+    }
+
     public static void main(String[] args) throws Exception {
 
         if ((args.length == 0) || ((args.length == 1) && args[0].equals("-gui"))) {
@@ -148,6 +223,15 @@ public class Main {
             } catch (IOException e) {
                 System.out.println(e.getMessage());
             }
+        } else if ((args.length == 3) && args[0].equals("-recognize") && args[1].equals("-s")) {
+            // recognize the frames of the stream args[2]
+            try {
+                Main.systemLogic = new Intelligence();
+                InputStream in = args[2].equals("-") ? System.in : new FileInputStream(args[2]);
+                Main.recognizeStream(new MjpegFrameSource(in));
+            } catch (IOException e) {
+                System.out.println(e.getMessage());
+            }
         } else if ((args.length == 5) && args[0].equals("-recognize") && args[1].equals("-i") && args[3].equals("-o")) {
             // load snapshot arg[2] and generate report into arg[4]
             try {
@@ -105,7 +105,7 @@ public abstract class CharacterRecognizer {
             private char chr;
             private float cost;
 
-            RecognizedPattern(char chr, float value) {
+            public RecognizedPattern(char chr, float value) {
                 this.chr = chr;
                 this.cost = value;
             }
@@ -148,8 +148,9 @@ public abstract class CharacterRecognizer {
 
         private Vector<RecognizedPattern> patterns;
         private boolean isSorted;
+        private int direction;
 
-        RecognizedChar() {
+        public RecognizedChar() {
             this.patterns = new Vector<RecognizedPattern>();
             this.isSorted = false;
         }
@@ -167,9 +168,18 @@ public abstract class CharacterRecognizer {
                 return;
             }
             this.isSorted = true;
+            this.direction = direction;
             Collections.sort(this.patterns, new PatternComparer(direction));
         }
 
+        /**
+         * @return the direction the patterns have been sorted in, 0 if the lowest cost is the best match, 1 if the
+         *         highest one
+         */
+        public int getSortDirection() {
+            return this.direction;
+        }
+
         public Vector<RecognizedPattern> getPatterns() {
             if (this.isSorted) {
                 return this.patterns;
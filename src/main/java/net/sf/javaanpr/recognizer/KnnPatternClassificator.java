@@ -74,9 +74,13 @@ import java.util.Vector;
 
 import net.sf.javaanpr.configurator.Configurator;
 import net.sf.javaanpr.imageanalysis.Char;
+import net.sf.javaanpr.imageanalysis.Kernels;
 
 public class KnnPatternClassificator extends CharacterRecognizer {
     Vector<Vector<Double>> learnVectors;
+    /* learnVectors as primitive arrays, for the distance kernel */
+    private double[][] learnArrays;
+    private final Kernels kernels = Kernels.getKernels();
 
     public KnnPatternClassificator() {
         String path = Configurator.getConfigurator().getPathProperty("char_learnAlphabetPath");
@@ -110,11 +114,16 @@ public class KnnPatternClassificator extends CharacterRecognizer {
             }
         }
 
+        this.learnArrays = new double[this.learnVectors.size()][];
+        for (int i = 0; i < this.learnVectors.size(); i++) {
+            this.learnArrays[i] = KnnPatternClassificator.toArray(this.learnVectors.elementAt(i));
+        }
+
     }
 
     @Override
     public RecognizedChar recognize(Char chr) {
-        Vector<Double> tested = chr.extractFeatures();
+        double[] tested = KnnPatternClassificator.toArray(chr.extractFeatures());
         // int minx = 0;
         // float minfx = Float.POSITIVE_INFINITY;
 
@@ -123,7 +132,7 @@ public class KnnPatternClassificator extends CharacterRecognizer {
         for (int x = 0; x < this.learnVectors.size(); x++) {
             // pre lepsie fungovanie bol pouhy rozdiel vektorov nahradeny
             // euklidovskou vzdialenostou
-            float fx = this.simplifiedEuclideanDistance(tested, this.learnVectors.elementAt(x));
+            float fx = this.kernels.squaredDistance(tested, this.learnArrays[x]);
 
             recognized.addPattern(recognized.new RecognizedPattern(alphabet[x], fx));
 
@@ -147,6 +156,16 @@ public class KnnPatternClassificator extends CharacterRecognizer {
         return diff;
     }
 
+    private static double[] toArray(Vector<Double> vector) {
+        double[] array = new double[vector.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = vector.elementAt(i);
+        }
+        return array;
+    }
+
+    @SuppressWarnings("unused")
+    // the same as Kernels.squaredDistance
     private float simplifiedEuclideanDistance(Vector<Double> vectorA, Vector<Double> vectorB) {
         float diff = 0;
         float partialDiff;
@@ -0,0 +1,153 @@
+package net.sf.javaanpr.capture;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import net.sf.javaanpr.imageanalysis.CarSnapshot;
+
+import org.junit.Test;
+
+/**
+ * Splits synthetic streams of images, the parser follows only the marker structure so the images need not decode.
+ */
+public class MjpegFrameSourceTest {
+
+    /* SOI, APP1 with the given payload, DQT, SOS, a scan with a stuffed byte and a restart marker, EOI */
+    private static byte[] image(int seed, byte[] app1) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        write(out, 0xff, 0xd8);
+        write(out, 0xff, 0xe1, 0, app1.length + 2);
+        out.write(app1, 0, app1.length);
+        write(out, 0xff, 0xdb, 0, 5, seed, seed + 1, seed + 2);
+        write(out, 0xff, 0xda, 0, 4, 1, 2);
+        write(out, seed, 0xff, 0x00, seed + 3, 0xff, 0xd0, seed + 4, seed + 5);
+        write(out, 0xff, 0xd9);
+        return out.toByteArray();
+    }
+
+    private static byte[] image(int seed) {
+        return image(seed, new byte[] { 'E', 'x', 'i', 'f', 0, 0 });
+    }
+
+    private static void write(ByteArrayOutputStream out, int... bytes) {
+        for (int b : bytes) {
+            out.write(b);
+        }
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            out.write(part, 0, part.length);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] bytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    @Test
+    public void thumbnailEndOfImageDoesNotEndFrame() throws IOException {
+        // an Exif thumbnail is a whole JPEG with its own SOI and EOI inside APP1
+        byte[] thumbnail = image(10);
+        byte[] app1 = concat(new byte[] { 'E', 'x', 'i', 'f', 0, 0 }, thumbnail);
+        byte[] frame = image(20, app1);
+        MjpegFrameSource source = new MjpegFrameSource(new ByteArrayInputStream(concat(frame, image(30))));
+
+        assertArrayEquals(frame, bytes(source.nextJpeg()));
+        assertArrayEquals(image(30), bytes(source.nextJpeg()));
+        assertNull(source.nextJpeg());
+        assertEquals(0, source.getDroppedFrames());
+    }
+
+    @Test
+    public void multipartHeadersAndBoundariesAreSkipped() throws IOException {
+        byte[] first = image(40);
+        byte[] second = image(50);
+        byte[] stream = concat(
+            ("--myboundary\r\nContent-Type: image/jpeg\r\nContent-Length: " + first.length + "\r\n\r\n")
+                .getBytes("US-ASCII"),
+            first,
+            ("\r\n--myboundary\r\nContent-Type: image/jpeg\r\nContent-Length: " + second.length + "\r\n\r\n")
+                .getBytes("US-ASCII"), second, "\r\n--myboundary--\r\n".getBytes("US-ASCII"));
+        MjpegFrameSource source = new MjpegFrameSource(new ByteArrayInputStream(stream));
+
+        assertArrayEquals(first, bytes(source.nextJpeg()));
+        assertArrayEquals(second, bytes(source.nextJpeg()));
+        assertNull(source.nextJpeg());
+        assertEquals(0, source.getDroppedFrames());
+    }
+
+    @Test
+    public void truncatedFrameIsSkipped() throws IOException {
+        byte[] good = image(60);
+        byte[] broken = image(70);
+        // cut in the middle of the scan, the next image starts right away
+        byte[] truncated = Arrays.copyOf(broken, broken.length - 4);
+        MjpegFrameSource source = new MjpegFrameSource(new ByteArrayInputStream(concat(truncated, good)));
+
+        assertArrayEquals(good, bytes(source.nextJpeg()));
+        assertNull(source.nextJpeg());
+        assertEquals(1, source.getDroppedFrames());
+    }
+
+    @Test
+    public void corruptedFrameIsSkipped() throws IOException {
+        byte[] good = image(80);
+        byte[] broken = image(90);
+        // garbage where the marker after APP1 should be
+        broken[12] = 0x12;
+        MjpegFrameSource source = new MjpegFrameSource(new ByteArrayInputStream(concat(broken, good, image(100))));
+
+        assertArrayEquals(good, bytes(source.nextJpeg()));
+        assertArrayEquals(image(100), bytes(source.nextJpeg()));
+        assertNull(source.nextJpeg());
+        assertEquals(1, source.getDroppedFrames());
+    }
+
+    @Test
+    public void frameCutOffByEndOfStreamIsDropped() throws IOException {
+        byte[] good = image(110);
+        byte[] last = image(120);
+        MjpegFrameSource source = new MjpegFrameSource(new ByteArrayInputStream(concat(good,
+            Arrays.copyOf(last, last.length - 1))));
+
+        assertArrayEquals(good, bytes(source.nextJpeg()));
+        assertNull(source.nextJpeg());
+        assertEquals(0, source.getDroppedFrames());
+    }
+
+    @Test
+    public void undecodableFrameIsSkipped() throws IOException {
+        ByteArrayOutputStream snapshot = new ByteArrayOutputStream();
+        InputStream in = MjpegFrameSourceTest.class.getResourceAsStream("/snapshots/test_001.jpg");
+        try {
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                snapshot.write(buffer, 0, n);
+            }
+        } finally {
+            in.close();
+        }
+        MjpegFrameSource source = new MjpegFrameSource(new ByteArrayInputStream(concat(image(130),
+            snapshot.toByteArray())));
+
+        CarSnapshot frame = source.nextFrame();
+        assertNotNull(frame);
+        assertNull(source.nextFrame());
+        assertEquals(1, source.getDroppedFrames());
+    }
+}
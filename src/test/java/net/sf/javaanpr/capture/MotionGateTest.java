@@ -0,0 +1,130 @@
+package net.sf.javaanpr.capture;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+import net.sf.javaanpr.imageanalysis.CarSnapshot;
+import net.sf.javaanpr.imageanalysis.RawFrame;
+import net.sf.javaanpr.imageanalysis.RegionOfInterest;
+
+import org.junit.Test;
+
+/**
+ * Feeds synthetic 160x120 frames, a striped gray scene with an optional bright block, to a gate comparing 40x30
+ * thumbnails.
+ */
+public class MotionGateTest {
+    private static final int BLOCK = 24;
+    /* the left half of the frame */
+    private static final RegionOfInterest LEFT = RegionOfInterest.parse("0,0,80,120");
+
+    private static MotionGate gate() {
+        return new MotionGate(40, 24, 0.01, 0.05);
+    }
+
+    /* the scene with the block at x, y, or without it if x is negative */
+    private static CarSnapshot frame(int x, int y, RegionOfInterest region) {
+        BufferedImage image = new BufferedImage(160, 120, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        for (int stripe = 0; stripe < 160; stripe += 20) {
+            g.setColor(new Color(80 + stripe / 4, 80 + stripe / 4, 80 + stripe / 4));
+            g.fillRect(stripe, 0, 20, 120);
+        }
+        if (x >= 0) {
+            g.setColor(new Color(230, 230, 230));
+            g.fillRect(x, y, MotionGateTest.BLOCK, MotionGateTest.BLOCK);
+        }
+        g.dispose();
+        CarSnapshot snapshot = new CarSnapshot(image);
+        snapshot.setRegionOfInterest(region);
+        return snapshot;
+    }
+
+    @Test
+    public void testStaticSceneIsGatedOff() {
+        MotionGate gate = MotionGateTest.gate();
+        assertTrue(gate.hasMotion(MotionGateTest.frame(-1, 0, null)));
+        for (int i = 0; i < 5; i++) {
+            assertFalse(gate.hasMotion(MotionGateTest.frame(-1, 0, null)));
+            assertEquals(0, gate.getLastChangedFraction(), 0);
+        }
+    }
+
+    @Test
+    public void testMovingBlockInsideRegionHasMotion() {
+        MotionGate gate = MotionGateTest.gate();
+        gate.hasMotion(MotionGateTest.frame(-1, 0, MotionGateTest.LEFT));
+        gate.hasMotion(MotionGateTest.frame(-1, 0, MotionGateTest.LEFT));
+        for (int x = 0; x <= (80 - MotionGateTest.BLOCK); x += 8) {
+            assertTrue(gate.hasMotion(MotionGateTest.frame(x, 40, MotionGateTest.LEFT)));
+            assertTrue(gate.getLastChangedFraction() > 0.01);
+        }
+    }
+
+    @Test
+    public void testMovingBlockOutsideRegionIsIgnored() {
+        MotionGate gate = MotionGateTest.gate();
+        MotionGate unrestricted = MotionGateTest.gate();
+        gate.hasMotion(MotionGateTest.frame(-1, 0, MotionGateTest.LEFT));
+        unrestricted.hasMotion(MotionGateTest.frame(-1, 0, null));
+        for (int x = 80; x <= (160 - MotionGateTest.BLOCK); x += 8) {
+            assertFalse(gate.hasMotion(MotionGateTest.frame(x, 40, MotionGateTest.LEFT)));
+            assertEquals(0, gate.getLastChangedFraction(), 0);
+            // the same frames have motion if the whole frame is compared
+            assertTrue(unrestricted.hasMotion(MotionGateTest.frame(x, 40, null)));
+        }
+    }
+
+    @Test
+    public void testBackgroundAbsorbsParkedBlock() {
+        MotionGate gate = MotionGateTest.gate();
+        gate.hasMotion(MotionGateTest.frame(-1, 0, null));
+        // a block appears and stays, it has motion until the running average has taken it in
+        assertTrue(gate.hasMotion(MotionGateTest.frame(40, 40, null)));
+        assertTrue(gate.hasMotion(MotionGateTest.frame(40, 40, null)));
+        int frames = 2;
+        while (gate.hasMotion(MotionGateTest.frame(40, 40, null))) {
+            frames++;
+            assertTrue("the block is never absorbed", frames < 100);
+        }
+        // 0.95^n of the difference of about 140 drops below the threshold of 24 after about 35 frames
+        assertTrue(frames > 30);
+        assertFalse(gate.hasMotion(MotionGateTest.frame(40, 40, null)));
+
+        // the block leaving is motion again
+        assertTrue(gate.hasMotion(MotionGateTest.frame(-1, 0, null)));
+    }
+
+    @Test
+    public void testResetAndNewSizeHaveMotion() {
+        MotionGate gate = MotionGateTest.gate();
+        gate.hasMotion(MotionGateTest.frame(-1, 0, null));
+        assertFalse(gate.hasMotion(MotionGateTest.frame(-1, 0, null)));
+        gate.reset();
+        assertTrue(gate.hasMotion(MotionGateTest.frame(-1, 0, null)));
+        assertTrue(gate.hasMotion(new CarSnapshot(new BufferedImage(200, 100, BufferedImage.TYPE_INT_RGB))));
+    }
+
+    @Test
+    public void testRawFramesAreComparedOnTheirLumaPlane() {
+        MotionGate gate = MotionGateTest.gate();
+        // a gray frame in an NV12 buffer, the chroma is never read
+        byte[] still = new byte[(160 * 120 * 3) / 2];
+        Arrays.fill(still, (byte) 90);
+        byte[] moved = still.clone();
+        for (int y = 40; y < (40 + MotionGateTest.BLOCK); y++) {
+            Arrays.fill(moved, (y * 160) + 40, (y * 160) + 40 + MotionGateTest.BLOCK, (byte) 230);
+        }
+        assertTrue(gate.hasMotion(new CarSnapshot(new RawFrame(still, 0, 160, 120, 160, RawFrame.Format.NV12))));
+        assertFalse(gate.hasMotion(new CarSnapshot(new RawFrame(still, 0, 160, 120, 160, RawFrame.Format.NV12))));
+        assertTrue(gate.hasMotion(new CarSnapshot(new RawFrame(moved, 0, 160, 120, 160, RawFrame.Format.NV12))));
+        // 6 x 6 of the 40 x 30 thumbnail pixels
+        assertEquals(36.0 / 1200, gate.getLastChangedFraction(), 1e-9);
+    }
+}
@@ -0,0 +1,174 @@
+package net.sf.javaanpr.capture;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import net.sf.javaanpr.imageanalysis.CarSnapshot;
+import net.sf.javaanpr.imageanalysis.RawFrame;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Publishes tiny gray frames whose pixels all hold a value derived from the sequence number, so a frame read from a
+ * reused slot can be told apart from the one the reader asked for.
+ */
+public class RingBufferFrameSourceTest {
+    private static final int WIDTH = 4;
+    private static final int HEIGHT = 2;
+    private static final int LENGTH = RingBufferFrameSourceTest.WIDTH * RingBufferFrameSourceTest.HEIGHT;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static int value(long sequence) {
+        return (int) ((sequence * 10) + 1) & 0xff;
+    }
+
+    private static void write(RingBufferFrameWriter writer, long sequence) {
+        byte[] pixels = new byte[RingBufferFrameSourceTest.LENGTH];
+        Arrays.fill(pixels, (byte) RingBufferFrameSourceTest.value(sequence));
+        writer.write(pixels, pixels.length, RingBufferFrameSourceTest.WIDTH, RingBufferFrameSourceTest.HEIGHT,
+            RingBufferFrameSourceTest.WIDTH, RawFrame.Format.GRAY, sequence * 100);
+    }
+
+    /* reads the next frame, checks that its pixels belong to it and returns its sequence number */
+    private static long read(RingBufferFrameSource source) throws IOException {
+        CarSnapshot frame = source.nextFrame();
+        assertNotNull(frame);
+        long sequence = source.getSequence();
+        assertEquals(sequence * 100, source.getTimestamp());
+        for (int y = 0; y < RingBufferFrameSourceTest.HEIGHT; y++) {
+            for (int x = 0; x < RingBufferFrameSourceTest.WIDTH; x++) {
+                assertEquals(RingBufferFrameSourceTest.value(sequence), frame.getBi().getRGB(x, y) & 0xff);
+            }
+        }
+        return sequence;
+    }
+
+    @Test
+    public void testFramesAreReadInOrder() throws IOException {
+        File file = this.folder.newFile();
+        RingBufferFrameWriter writer = new RingBufferFrameWriter(file, 4, RingBufferFrameSourceTest.LENGTH);
+        RingBufferFrameSource source = new RingBufferFrameSource(file, 1);
+        for (long n = 0; n < 3; n++) {
+            RingBufferFrameSourceTest.write(writer, n);
+        }
+        writer.close();
+        for (long n = 0; n < 3; n++) {
+            assertEquals(n, RingBufferFrameSourceTest.read(source));
+        }
+        assertNull(source.nextFrame());
+        assertEquals(0, source.getDroppedFrames());
+        source.close();
+    }
+
+    @Test
+    public void testWriterWrapsAround() throws IOException {
+        File file = this.folder.newFile();
+        RingBufferFrameWriter writer = new RingBufferFrameWriter(file, 4, RingBufferFrameSourceTest.LENGTH);
+        RingBufferFrameSource source = new RingBufferFrameSource(file, 1);
+        // frames 4 to 6 reuse the slots of frames 0 to 2, every one of them is read before its slot is reused
+        for (long n = 0; n < 7; n++) {
+            RingBufferFrameSourceTest.write(writer, n);
+            assertEquals(n, RingBufferFrameSourceTest.read(source));
+        }
+
+        // the reader falls behind by more than the ring holds and continues with the newest frame
+        for (long n = 7; n < 17; n++) {
+            RingBufferFrameSourceTest.write(writer, n);
+        }
+        writer.close();
+        assertEquals(16, RingBufferFrameSourceTest.read(source));
+        assertNull(source.nextFrame());
+        assertEquals(9, source.getDroppedFrames());
+        source.close();
+    }
+
+    @Test
+    public void testFrameOverwrittenWhileCopiedIsDiscarded() throws IOException {
+        File file = this.folder.newFile();
+        final RingBufferFrameWriter writer = new RingBufferFrameWriter(file, 4, RingBufferFrameSourceTest.LENGTH);
+        RingBufferFrameSource source = new RingBufferFrameSource(file, 1) {
+            @Override
+            void copied(long n) {
+                if (n == 1) {
+                    // the producer laps the reader while it copies frame 1, frame 5 lands in the same slot
+                    for (long next = 3; next < 6; next++) {
+                        RingBufferFrameSourceTest.write(writer, next);
+                    }
+                }
+            }
+        };
+        for (long n = 0; n < 3; n++) {
+            RingBufferFrameSourceTest.write(writer, n);
+        }
+
+        List<Long> read = new ArrayList<Long>();
+        for (int i = 0; i < 5; i++) {
+            read.add(RingBufferFrameSourceTest.read(source));
+        }
+        assertEquals(Arrays.asList(0L, 2L, 3L, 4L, 5L), read);
+        assertEquals(1, source.getDroppedFrames());
+        writer.close();
+        assertNull(source.nextFrame());
+        source.close();
+    }
+
+    @Test
+    public void testSlotBeingRewrittenIsSkipped() throws IOException {
+        File file = this.folder.newFile();
+        RingBufferFrameWriter writer = new RingBufferFrameWriter(file, 4, RingBufferFrameSourceTest.LENGTH);
+        RingBufferFrameSource source = new RingBufferFrameSource(file, 1);
+        for (long n = 0; n < 3; n++) {
+            RingBufferFrameSourceTest.write(writer, n);
+        }
+        // the producer has started to rewrite the slot of frame 1, it marks the slot as invalid first
+        RandomAccessFile raw = new RandomAccessFile(file, "rw");
+        int slotSize = RingBufferFrameSource.SLOT_HEADER_SIZE + RingBufferFrameSourceTest.LENGTH;
+        raw.seek(RingBufferFrameSource.HEADER_SIZE + slotSize + RingBufferFrameSource.SEQUENCE_OFFSET);
+        raw.writeLong(-1);
+        raw.close();
+
+        assertEquals(0, RingBufferFrameSourceTest.read(source));
+        assertEquals(2, RingBufferFrameSourceTest.read(source));
+        assertEquals(1, source.getDroppedFrames());
+        writer.close();
+        assertNull(source.nextFrame());
+        source.close();
+    }
+
+    @Test
+    public void testFrameLongerThanItsSlotIsMalformed() throws IOException {
+        File file = this.folder.newFile();
+        RingBufferFrameWriter writer = new RingBufferFrameWriter(file, 4, RingBufferFrameSourceTest.LENGTH);
+        RingBufferFrameSource source = new RingBufferFrameSource(file, 1);
+        RingBufferFrameSourceTest.write(writer, 0);
+        assertEquals(0, RingBufferFrameSourceTest.read(source));
+
+        // the header claims a 4x2 frame, but the slot holds the first row only; the rest of the reused buffer of the
+        // source still holds frame 0
+        writer.write(new byte[RingBufferFrameSourceTest.WIDTH], RingBufferFrameSourceTest.WIDTH,
+            RingBufferFrameSourceTest.WIDTH, RingBufferFrameSourceTest.HEIGHT, RingBufferFrameSourceTest.WIDTH,
+            RawFrame.Format.GRAY, 100);
+        try {
+            source.nextFrame();
+            fail("a frame longer than its slot has been accepted");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().startsWith("Malformed slot of frame 1"));
+        }
+        writer.close();
+        source.close();
+    }
+}
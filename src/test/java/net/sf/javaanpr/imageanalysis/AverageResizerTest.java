@@ -0,0 +1,34 @@
+package net.sf.javaanpr.imageanalysis;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+public class AverageResizerTest {
+
+    @Test
+    public void testResizersAreCached() {
+        AverageResizer resizer = AverageResizer.get(1001, 501, 100, 50);
+        assertSame(resizer, AverageResizer.get(1001, 501, 100, 50));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedResizersAreEvicted() {
+        AverageResizer kept = AverageResizer.get(2001, 1001, 200, 100);
+        AverageResizer evicted = AverageResizer.get(2002, 1001, 200, 100);
+        for (int i = 0; i < (AverageResizer.CACHE_SIZE - 1); i++) {
+            assertSame(kept, AverageResizer.get(2001, 1001, 200, 100));
+            AverageResizer.get(3000 + i, 1001, 200, 100);
+        }
+        assertSame(kept, AverageResizer.get(2001, 1001, 200, 100));
+        assertNotSame(evicted, AverageResizer.get(2002, 1001, 200, 100));
+    }
+
+    @Test
+    public void testBlocksAreAveraged() {
+        byte[] origin = { 0, 2, 4, 6, 10, 12, 14, 16 };
+        assertArrayEquals(new byte[] { 6, 10 }, AverageResizer.get(4, 2, 2, 1).resize(origin));
+    }
+}
@@ -0,0 +1,138 @@
+package net.sf.javaanpr.imageanalysis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class RecognitionContextTest {
+
+    /** runs every test on a fresh thread, so it gets an empty context */
+    private static void onNewThread(final Runnable test) throws Throwable {
+        final Throwable[] failure = new Throwable[1];
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    test.run();
+                } catch (Throwable t) {
+                    failure[0] = t;
+                }
+            }
+        });
+        thread.start();
+        thread.join();
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+    }
+
+    @Test
+    public void testBuffersAreReusedByTheNextFrame() throws Throwable {
+        RecognitionContextTest.onNewThread(new Runnable() {
+            @Override
+            public void run() {
+                RecognitionContext context = RecognitionContext.get();
+                context.begin();
+                int[] first = context.getInts(1000);
+                int[] second = context.getInts(1000);
+                assertNotSame(first, second);
+                assertEquals(1024, first.length);
+                context.end();
+                assertEquals(2 * 1024 * 4, context.getRetained());
+
+                context.begin();
+                int[] reused = context.getInts(600);
+                assertTrue((reused == first) || (reused == second));
+                context.end();
+            }
+        });
+    }
+
+    @Test
+    public void testBuffersOutsideOfAFrameAreNotPooled() throws Throwable {
+        RecognitionContextTest.onNewThread(new Runnable() {
+            @Override
+            public void run() {
+                RecognitionContext context = RecognitionContext.get();
+                assertEquals(1000, context.getFloats(1000).length);
+                context.begin();
+                context.end();
+                assertEquals(0, context.getRetained());
+            }
+        });
+    }
+
+    @Test
+    public void testIdleBucketsAreTrimmed() throws Throwable {
+        RecognitionContextTest.onNewThread(new Runnable() {
+            @Override
+            public void run() {
+                RecognitionContext context = RecognitionContext.get();
+                context.begin();
+                byte[] large = context.getBytes(1 << 20);
+                context.getBytes(100);
+                context.end();
+                for (int i = 1; i < RecognitionContext.IDLE_FRAMES; i++) {
+                    context.begin();
+                    context.getBytes(100);
+                    context.end();
+                }
+                assertEquals((1 << 20) + 128, context.getRetained());
+
+                context.begin();
+                context.getBytes(100);
+                context.end();
+                assertEquals(128, context.getRetained());
+
+                context.begin();
+                assertTrue(context.getBytes(1 << 20) != large);
+                context.end();
+            }
+        });
+    }
+
+    @Test
+    public void testRetainedSizeIsCapped() throws Throwable {
+        RecognitionContextTest.onNewThread(new Runnable() {
+            @Override
+            public void run() {
+                RecognitionContext context = RecognitionContext.get();
+                int size = (int) (RecognitionContext.MAX_RETAINED / 2);
+                context.begin();
+                context.getBytes(size);
+                context.getBytes(size);
+                context.getBytes(size);
+                context.end();
+                assertEquals(RecognitionContext.MAX_RETAINED, context.getRetained());
+
+                context.begin();
+                context.getBytes(size);
+                assertEquals(RecognitionContext.MAX_RETAINED / 2, context.getRetained());
+                context.end();
+            }
+        });
+    }
+
+    @Test
+    public void testCapGrowsWithTheLargestBuffer() throws Throwable {
+        RecognitionContextTest.onNewThread(new Runnable() {
+            @Override
+            public void run() {
+                RecognitionContext context = RecognitionContext.get();
+                int size = (int) RecognitionContext.MAX_RETAINED;
+                // a buffer as large as the default cap is kept, together with a smaller one
+                context.begin();
+                byte[] large = context.getBytes(size);
+                context.getBytes(size / 4);
+                context.end();
+                assertEquals(RecognitionContext.MAX_RETAINED + (size / 4), context.getRetained());
+
+                context.begin();
+                assertTrue(context.getBytes(size) == large);
+                context.end();
+            }
+        });
+    }
+}
@@ -0,0 +1,83 @@
+package net.sf.javaanpr.imageanalysis;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.awt.Rectangle;
+import java.util.List;
+
+import org.junit.Test;
+
+public class RegionOfInterestTest {
+
+    @Test
+    public void rectangleCoversOneSpan() {
+        RegionOfInterest region = RegionOfInterest.parse("10,20,30,40");
+        int[][] spans = region.getRowSpans(1, 100, 0, 70);
+
+        assertArrayEquals(new int[0], spans[19]);
+        assertArrayEquals(new int[] { 10, 40 }, spans[20]);
+        assertArrayEquals(new int[] { 10, 40 }, spans[59]);
+        assertArrayEquals(new int[0], spans[60]);
+        assertEquals(new Rectangle(10, 20, 30, 40), region.getBounds(1, 100, 100));
+    }
+
+    @Test
+    public void separatePartsLeaveTheGapOut() {
+        // two lanes, the sidewalk between them is not searched
+        RegionOfInterest region = RegionOfInterest.parse("0,0,20,10; 60,0,40,10");
+        int[][] spans = region.getRowSpans(1, 100, 0, 10);
+
+        for (int[] span : spans) {
+            assertArrayEquals(new int[] { 0, 20, 60, 100 }, span);
+        }
+    }
+
+    @Test
+    public void nonConvexPolygonHasSeveralSpans() {
+        // a U shape, its notch is outside of the region
+        RegionOfInterest region = RegionOfInterest.parse("0,0 20,0 20,30 40,30 40,0 60,0 60,50 0,50");
+        int[][] spans = region.getRowSpans(1, 80, 0, 50);
+
+        assertArrayEquals(new int[] { 0, 20, 40, 60 }, spans[10]);
+        assertArrayEquals(new int[] { 0, 60 }, spans[40]);
+    }
+
+    @Test
+    public void spansAreSubsampledAndClipped() {
+        RegionOfInterest region = RegionOfInterest.parse("0,0,20,8; 60,0,100,8");
+        int[][] spans = region.getRowSpans(4, 30, 0, 2);
+
+        assertArrayEquals(new int[] { 0, 5, 15, 30 }, spans[0]);
+        assertArrayEquals(new int[] { 0, 5, 15, 30 }, spans[1]);
+    }
+
+    @Test
+    public void touchingPartsAreMerged() {
+        RegionOfInterest region = RegionOfInterest.parse("0,0,21,4; 22,0,20,4");
+        int[][] spans = region.getRowSpans(2, 100, 0, 2);
+
+        assertArrayEquals(new int[] { 0, 21 }, spans[0]);
+    }
+
+    @Test
+    public void bandsAreCutToTheColumnsOfEveryPart() {
+        int[][] spans = { { 0, 20, 60, 100 }, { 5, 25 }, { 70, 90 } };
+        List<int[]> parts = CarSnapshot.columnParts(spans);
+
+        assertEquals(2, parts.size());
+        assertArrayEquals(new int[] { 0, 25 }, parts.get(0));
+        assertArrayEquals(new int[] { 60, 100 }, parts.get(1));
+    }
+
+    @Test
+    public void emptyRegionIsNull() {
+        assertNull(RegionOfInterest.parse(" ; "));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void malformedRegionIsRejected() {
+        RegionOfInterest.parse("0,0,10");
+    }
+}
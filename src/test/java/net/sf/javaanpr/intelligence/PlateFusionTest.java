@@ -0,0 +1,168 @@
+package net.sf.javaanpr.intelligence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import net.sf.javaanpr.imageanalysis.Char;
+import net.sf.javaanpr.recognizer.CharacterRecognizer;
+import net.sf.javaanpr.recognizer.CharacterRecognizer.RecognizedChar;
+
+import org.junit.Test;
+
+public class PlateFusionTest {
+    private static final float DELTA = 1e-6f;
+
+    private final CharacterRecognizer recognizer = new CharacterRecognizer() {
+        @Override
+        public RecognizedChar recognize(Char chr) {
+            throw new UnsupportedOperationException();
+        }
+    };
+
+    /*
+     * a plate read as the given string, each character with its alternative (the same position of the second string)
+     * at a higher cost, costs sorted so the lowest one is the best match
+     */
+    private RecognizedPlate plate(String read, String alternative) {
+        RecognizedPlate plate = new RecognizedPlate();
+        for (int i = 0; i < read.length(); i++) {
+            RecognizedChar chr = this.recognizer.new RecognizedChar();
+            chr.addPattern(chr.new RecognizedPattern(read.charAt(i), 0.1f));
+            if (alternative.charAt(i) != read.charAt(i)) {
+                chr.addPattern(chr.new RecognizedPattern(alternative.charAt(i), 0.5f));
+            }
+            chr.sort(0);
+            plate.addChar(chr);
+        }
+        return plate;
+    }
+
+    @Test
+    public void majorityOutvotesMisreadCharacter() {
+        PlateFusion fusion = new PlateFusion(this.recognizer, 3, 0.6);
+        fusion.add(this.plate("ABC123", "A8C123"));
+        fusion.add(this.plate("A8C123", "ABC123"));
+        assertFalse(fusion.isConfident());
+        fusion.add(this.plate("ABC123", "A8C123"));
+
+        assertEquals("ABC123", fusion.getFusedPlate().getString());
+        assertEquals(3, fusion.getFusedFrames());
+        // two of three frames voted for B at the second position
+        assertEquals(2f / 3, fusion.getConfidence(), PlateFusionTest.DELTA);
+        assertTrue(fusion.isConfident());
+    }
+
+    @Test
+    public void notConfidentBeforeMinimumFrames() {
+        PlateFusion fusion = new PlateFusion(this.recognizer, 3, 0.6);
+        fusion.add(this.plate("ABC123", "ABC123"));
+        fusion.add(this.plate("ABC123", "ABC123"));
+
+        assertEquals(1f, fusion.getConfidence(), PlateFusionTest.DELTA);
+        assertFalse(fusion.isConfident());
+    }
+
+    @Test
+    public void disagreementIsNotConfident() {
+        PlateFusion fusion = new PlateFusion(this.recognizer, 3, 0.6);
+        fusion.add(this.plate("ABC123", "A8C123"));
+        fusion.add(this.plate("A8C123", "ABC123"));
+        fusion.add(this.plate("ABC123", "A8C123"));
+        fusion.add(this.plate("A8C123", "ABC123"));
+
+        assertEquals(0.5f, fusion.getConfidence(), PlateFusionTest.DELTA);
+        assertFalse(fusion.isConfident());
+    }
+
+    @Test
+    public void charactersOfEqualCostShareTheVotes() {
+        // 0 and O match the same template, the frames alternate which one comes first
+        PlateFusion fusion = new PlateFusion(this.recognizer, 3, 0.6);
+        for (int i = 0; i < 4; i++) {
+            RecognizedPlate plate = new RecognizedPlate();
+            RecognizedChar chr = this.recognizer.new RecognizedChar();
+            chr.addPattern(chr.new RecognizedPattern((i % 2) == 0 ? '0' : 'O', 0.2f));
+            chr.addPattern(chr.new RecognizedPattern((i % 2) == 0 ? 'O' : '0', 0.2f));
+            chr.sort(0);
+            plate.addChar(chr);
+            fusion.add(plate);
+        }
+
+        assertEquals(1f, fusion.getConfidence(), PlateFusionTest.DELTA);
+        assertTrue(fusion.isConfident());
+    }
+
+    @Test
+    public void mostFrequentLengthIsFused() {
+        PlateFusion fusion = new PlateFusion(this.recognizer, 2, 0.6);
+        fusion.add(this.plate("ABC123", "ABC123"));
+        fusion.add(this.plate("ABC1234", "ABC1234")); // a segmentation error
+        fusion.add(this.plate("ABC123", "ABC123"));
+
+        assertEquals("ABC123", fusion.getFusedPlate().getString());
+        assertEquals(2, fusion.getFusedFrames());
+        assertTrue(fusion.isConfident());
+    }
+
+    @Test
+    public void mostRecentLengthWinsATie() {
+        PlateFusion fusion = new PlateFusion(this.recognizer, 2, 0.6);
+        fusion.add(this.plate("XY99", "XY99"));
+        fusion.add(this.plate("ABC123", "ABC123"));
+
+        assertEquals("ABC123", fusion.getFusedPlate().getString());
+        fusion.add(this.plate("XY99", "XY99"));
+        fusion.add(this.plate("ABC123", "ABC123"));
+        assertEquals("ABC123", fusion.getFusedPlate().getString());
+        fusion.add(this.plate("XY99", "XY99"));
+        assertEquals("XY99", fusion.getFusedPlate().getString());
+        assertEquals(3, fusion.getFusedFrames());
+    }
+
+    @Test
+    public void highestCostWinsInDescendingDirection() {
+        // the neural network scores the best match highest
+        PlateFusion fusion = new PlateFusion(this.recognizer, 1, 0.6);
+        for (int i = 0; i < 3; i++) {
+            RecognizedPlate plate = new RecognizedPlate();
+            RecognizedChar chr = this.recognizer.new RecognizedChar();
+            chr.addPattern(chr.new RecognizedPattern('K', i == 0 ? 0.3f : 0.9f));
+            chr.addPattern(chr.new RecognizedPattern('X', i == 0 ? 0.8f : 0.2f));
+            chr.sort(1);
+            plate.addChar(chr);
+            fusion.add(plate);
+        }
+
+        assertEquals("K", fusion.getFusedPlate().getString());
+        assertEquals(2f / 3, fusion.getConfidence(), PlateFusionTest.DELTA);
+    }
+
+    @Test
+    public void resetForgetsAllPlates() {
+        PlateFusion fusion = new PlateFusion(this.recognizer, 1, 0.6);
+        fusion.add(this.plate("ABC123", "ABC123"));
+        fusion.reset();
+
+        assertNull(fusion.getFusedPlate());
+        assertEquals(0, fusion.getFusedFrames());
+        assertEquals(0f, fusion.getConfidence(), PlateFusionTest.DELTA);
+        assertFalse(fusion.isConfident());
+    }
+
+    @Test
+    public void differencesAreCountedPerCharacter() {
+        PlateFusion fusion = new PlateFusion(this.recognizer, 3, 0.6);
+        assertEquals(6, fusion.getDifferences(this.plate("ABC123", "ABC123")));
+        fusion.add(this.plate("ABC123", "ABC123"));
+        fusion.add(this.plate("ABC123", "ABC123"));
+
+        assertEquals(0, fusion.getDifferences(this.plate("ABC123", "ABC123")));
+        assertEquals(1, fusion.getDifferences(this.plate("A8C123", "ABC123")));
+        assertEquals(6, fusion.getDifferences(this.plate("XYZ987", "XYZ987")));
+        // a missing or extra character counts as well
+        assertEquals(1, fusion.getDifferences(this.plate("ABC12", "ABC12")));
+        assertEquals(1, fusion.getDifferences(this.plate("ABC1234", "ABC1234")));
+    }
+}